@@ -0,0 +1,82 @@
+package ch.epfl.gameboj;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.epfl.gameboj.component.cartridge.Cartridge;
+
+/**
+ * Benchmark of the latency of Bus.read in the different regions of the address
+ * space of a GameBoy running tetris.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BusBenchmark {
+
+	private static final int READS = 1_024;
+	private static final int ADDRESS_STEP = 37;
+
+	/**
+	 * Regions of the address space which are read.
+	 */
+	public enum Region {
+		CARTRIDGE_ROM(AddressMap.CARTRIDGE_ROM_START, AddressMap.CARTRIDGE_ROM_SIZE),
+		VIDEO_RAM(AddressMap.VIDEO_RAM_START, AddressMap.VIDEO_RAM_SIZE),
+		WORK_RAM(AddressMap.WORK_RAM_START, AddressMap.WORK_RAM_SIZE),
+		HIGH_RAM(AddressMap.HIGH_RAM_START, AddressMap.HIGH_RAM_SIZE),
+		LCD_REGS(AddressMap.REGS_LCDC_START, AddressMap.REGS_LCDC_END - AddressMap.REGS_LCDC_START);
+
+		private final int start;
+		private final int size;
+
+		private Region(int start, int size) {
+			this.start = start;
+			this.size = size;
+		}
+	}
+
+	@Param
+	public Region region;
+
+	private Bus bus;
+	private final int[] addresses = new int[READS];
+
+	@Setup
+	public void setUp() throws IOException {
+		GameBoy gameBoy = new GameBoy(Cartridge.ofFile(new File("tetris.gb")));
+		gameBoy.runUntil(GameBoy.CYCLES_PER_FRAME * 60);
+		bus = gameBoy.bus();
+		for (int i = 0; i < READS; ++i)
+			addresses[i] = region.start + (i * ADDRESS_STEP) % region.size;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(READS)
+	public int read() {
+		int sum = 0;
+		for (int address : addresses)
+			sum += bus.read(address);
+		return sum;
+	}
+}
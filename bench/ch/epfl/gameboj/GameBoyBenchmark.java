@@ -0,0 +1,54 @@
+package ch.epfl.gameboj;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.epfl.gameboj.component.cartridge.Cartridge;
+
+/**
+ * Benchmark of the emulation of whole frames on the bundled games. The score
+ * is the number of emulated frames per second.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBoyBenchmark {
+
+	private static final int FRAMES_BEFORE_MEASURE = 300;
+
+	@Param({ "tetris.gb", "flappyboy.gb", "2048.gb" })
+	public String rom;
+
+	private GameBoy gameBoy;
+
+	@Setup
+	public void setUp() throws IOException {
+		gameBoy = new GameBoy(Cartridge.ofFile(new File(rom)));
+		gameBoy.runUntil(FRAMES_BEFORE_MEASURE * GameBoy.CYCLES_PER_FRAME);
+	}
+
+	@Benchmark
+	public long runOneFrame() {
+		gameBoy.runUntil(gameBoy.cycles() + GameBoy.CYCLES_PER_FRAME);
+		return gameBoy.cycles();
+	}
+}
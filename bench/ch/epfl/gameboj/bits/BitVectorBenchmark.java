@@ -0,0 +1,90 @@
+package ch.epfl.gameboj.bits;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the operations of BitVector on vectors of the size of the
+ * background.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitVectorBenchmark {
+
+	private static final int SIZE = 256;
+	private static final int SHIFT = 13;
+
+	private BitVector v1;
+	private BitVector v2;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(2018);
+		int[] blocks1 = new int[SIZE / Integer.SIZE];
+		int[] blocks2 = new int[SIZE / Integer.SIZE];
+		for (int i = 0; i < blocks1.length; ++i) {
+			blocks1[i] = random.nextInt();
+			blocks2[i] = random.nextInt();
+		}
+		v1 = BitVector.ofBlocks(blocks1);
+		v2 = BitVector.ofBlocks(blocks2);
+	}
+
+	@Benchmark
+	public BitVector not() {
+		return v1.not();
+	}
+
+	@Benchmark
+	public BitVector and() {
+		return v1.and(v2);
+	}
+
+	@Benchmark
+	public BitVector or() {
+		return v1.or(v2);
+	}
+
+	@Benchmark
+	public BitVector andNot() {
+		return v1.andNot(v2);
+	}
+
+	@Benchmark
+	public BitVector blend() {
+		return v1.blend(v2, v1);
+	}
+
+	@Benchmark
+	public BitVector shift() {
+		return v1.shift(SHIFT);
+	}
+
+	@Benchmark
+	public BitVector extractWrapped() {
+		return v1.extractWrapped(-SHIFT, SIZE);
+	}
+
+	@Benchmark
+	public BitVector extractZeroExtended() {
+		return v1.extractZeroExtended(SHIFT, SIZE);
+	}
+}
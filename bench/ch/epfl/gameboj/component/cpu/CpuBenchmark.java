@@ -0,0 +1,80 @@
+package ch.epfl.gameboj.component.cpu;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.component.memory.Ram;
+import ch.epfl.gameboj.component.memory.RamController;
+
+/**
+ * Benchmark of the instruction throughput of the Cpu, for one opcode of each
+ * of the main families. The Cpu executes a memory filled with this opcode,
+ * followed by a jump to the start of the memory.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CpuBenchmark {
+
+	private static final int INSTRUCTIONS = 1_000;
+	private static final int PROGRAM_SIZE = 0x8000;
+	private static final int PREFIX = 0xCB;
+	private static final int OPERAND = 0x01;
+
+	@Param({ "NOP", "LD_A_B", "LD_A_HLR", "LD_A_N8", "ADD_A_B", "ADC_A_N8", "SUB_A_B", "CP_A_N8", "INC_A", "DEC_B",
+			"AND_A_B", "XOR_A_N8", "INC_BC", "ADD_HL_BC", "RLC_A", "SWAP_A", "BIT_0_A", "SET_0_A" })
+	public String opcode;
+
+	private Cpu cpu;
+	private long cycle;
+
+	@Setup
+	public void setUp() {
+		Opcode o = Opcode.valueOf(opcode);
+		Ram ram = new Ram(PROGRAM_SIZE);
+		int address = 0;
+		while (address + o.totalBytes <= PROGRAM_SIZE - Opcode.JP_N16.totalBytes) {
+			if (o.kind == Opcode.Kind.PREFIXED)
+				ram.write(address++, PREFIX);
+			ram.write(address++, o.encoding);
+			for (int i = o.kind == Opcode.Kind.PREFIXED ? 2 : 1; i < o.totalBytes; ++i)
+				ram.write(address++, OPERAND);
+		}
+		ram.write(address, Opcode.JP_N16.encoding);
+
+		cpu = new Cpu();
+		Bus bus = new Bus();
+		cpu.attachTo(bus);
+		new RamController(ram, 0).attachTo(bus);
+		cycle = 0;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INSTRUCTIONS)
+	public long execute() {
+		for (int i = 0; i < INSTRUCTIONS; ++i) {
+			cpu.cycle(cycle);
+			cycle = cpu.nextNonIdleCycle(cycle + 1);
+		}
+		return cycle;
+	}
+}
@@ -0,0 +1,87 @@
+package ch.epfl.gameboj.component.lcd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.component.cartridge.Cartridge;
+
+/**
+ * Benchmark of the drawing of the lines by the LcdController. The video ram,
+ * OAM and registers are those of a game after some frames, and only the
+ * LcdController is then cycled a frame at a time. The score is the time of a
+ * frame divided by its 154 lines, the 144 drawn ones and the 10 of the
+ * vertical blank, i.e. the average time per line including the mode changes.
+ *
+ * Since nothing else changes the memories and the registers, the lines would
+ * then only be copied from the previous image. drawFrame therefore changes the
+ * horizontal scroll before each frame, so that every line is computed, while
+ * copyFrame measures the lines which are copied.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LcdControllerBenchmark {
+
+	private static final int FRAMES_BEFORE_MEASURE = 300;
+	private static final int REG_SCX = AddressMap.REGS_LCDC_START + 3;
+	private static final int LINES_PER_FRAME = 154;
+
+	@Param({ "tetris.gb", "flappyboy.gb", "2048.gb" })
+	public String rom;
+
+	private LcdController lcdController;
+	private long cycle;
+
+	@Setup
+	public void setUp() throws IOException {
+		GameBoy gameBoy = new GameBoy(Cartridge.ofFile(new File(rom)));
+		gameBoy.runUntil(FRAMES_BEFORE_MEASURE * GameBoy.CYCLES_PER_FRAME);
+		lcdController = gameBoy.lcdController();
+		cycle = gameBoy.cycles();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES_PER_FRAME)
+	public LcdImage drawFrame() {
+		lcdController.write(REG_SCX, (lcdController.read(REG_SCX) + 1) & 0xFF);
+		return runFrame();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES_PER_FRAME)
+	public LcdImage copyFrame() {
+		return runFrame();
+	}
+
+	// Cycles the LcdController during a frame.
+	private LcdImage runFrame() {
+		long end = cycle + GameBoy.CYCLES_PER_FRAME;
+		while (cycle < end) {
+			lcdController.cycle(cycle);
+			cycle = Math.max(cycle + 1, Math.min(end, lcdController.nextNonIdleCycle(cycle + 1)));
+		}
+		return lcdController.currentImage();
+	}
+}
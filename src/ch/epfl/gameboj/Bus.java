@@ -2,7 +2,9 @@ package ch.epfl.gameboj;
 
 
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Objects;
 
 import ch.epfl.gameboj.component.Component;
@@ -10,13 +12,47 @@ import ch.epfl.gameboj.component.Component;
 /**
  * Final class that simulates the bus, component in charge of linking the
  * components to one another.
+ * 
+ * Components can either be attached without any information, in which case
+ * they are asked for every access, or with the range of addresses they own,
+ * in which case accesses to that range are sent directly to them through a
+ * page table indexed by the 8 msb of the address. Pages which are only
+ * partially owned by a component (e.g. the 0xFF00 page of the registers) are
+ * decoded address by address.
+ * 
+ * The owner of a whole page can moreover let the bus read it directly from the
+ * array in which it is stored (see {@link Component#mapPage(Bus, int)}), so
+ * that reads of the memories, in particular instruction fetches, do not go
+ * through any component. Pages stored in a buffer, e.g. a rom mapped from its
+ * file, are read from it after the check of the arrays.
+ * 
  * @author Nizar Ghandri
  * @author Oscar Pitcho (288225)
  */
 public final class Bus {
 	private final ArrayList<Component> components = new ArrayList<Component>();
 
-	private final static int RAM_END = 0x80000;
+	private final static int ADDRESS_SPACE_SIZE = 0x1_0000;
+	private final static int PAGE_SIZE = 0x100;
+	private final static int PAGE_COUNT = ADDRESS_SPACE_SIZE / PAGE_SIZE;
+
+	// Owner of each page which is entirely owned by a single component.
+	private final Component[] pages = new Component[PAGE_COUNT];
+	// Owner of each address for the pages which are split between components.
+	private final Component[][] splitPages = new Component[PAGE_COUNT][];
+
+	// Array from which each page can be read directly, NOT_DIRECT if its owner
+	// did not provide one and null if it has not been asked yet.
+	private final static byte[] NOT_DIRECT = new byte[0];
+	private final byte[][] directPages = new byte[PAGE_COUNT][];
+	private final int[] directOffsets = new int[PAGE_COUNT];
+	private final boolean[] directWritable = new boolean[PAGE_COUNT];
+	// Buffer from which the pages which are NOT_DIRECT can be read, if any.
+	private final ByteBuffer[] directBuffers = new ByteBuffer[PAGE_COUNT];
+	// Owners which mapped pages since their pages were last discarded. A write to
+	// one of their addresses which is not in a writable page can remap them (e.g.
+	// bank registers), even if only writable pages are mapped (e.g. ram banks).
+	private final ArrayList<Component> remappableOwners = new ArrayList<Component>();
 
 	/**
 	 * Method to add a component in the array of component of the instance.
@@ -31,6 +67,175 @@ public final class Bus {
 		components.add(Objects.requireNonNull(component));
 	}
 
+	/**
+	 * Method to add a component which owns the given range of addresses. Reads
+	 * and writes in that range are sent directly to the component, which takes
+	 * precedence over the components attached without a range. A component can
+	 * be attached with several disjoint ranges by calling this method once per
+	 * range.
+	 * 
+	 * If part of the range is already owned by another component, the component
+	 * is attached as if it had no range, so that the earlier owner keeps
+	 * answering reads first.
+	 * 
+	 * @param component
+	 *            Component being added to the bus.
+	 * 
+	 * @param startAddress
+	 *            16 bits unsigned int: first address owned by the component
+	 *            (included).
+	 * 
+	 * @param endAddress
+	 *            last address owned by the component (excluded), at most
+	 *            0x10000.
+	 * 
+	 * @throws NullPointerException
+	 *             if component is null.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the range is not contained in the address space or if
+	 *             endAddress is smaller than startAddress.
+	 */
+	public void attach(Component component, int startAddress, int endAddress) {
+		Objects.requireNonNull(component);
+		Preconditions.checkBits16(startAddress);
+		Preconditions.checkArgument(startAddress <= endAddress && endAddress <= ADDRESS_SPACE_SIZE);
+
+		if (isPartlyOwned(startAddress, endAddress)) {
+			attach(component);
+			return;
+		}
+
+		int address = startAddress;
+		while (address < endAddress) {
+			int page = address / PAGE_SIZE;
+			int pageEnd = (page + 1) * PAGE_SIZE;
+			directPages[page] = null;
+			if (address % PAGE_SIZE == 0 && pageEnd <= endAddress && splitPages[page] == null
+					&& pages[page] == null) {
+				pages[page] = component;
+			} else {
+				if (splitPages[page] == null) {
+					splitPages[page] = new Component[PAGE_SIZE];
+					pages[page] = null;
+				}
+				for (int a = address; a < Math.min(pageEnd, endAddress); ++a)
+					splitPages[page][a % PAGE_SIZE] = component;
+			}
+			address = pageEnd;
+		}
+	}
+
+	/**
+	 * Method used by the owner of a whole page, when asked through
+	 * {@link Component#mapPage(Bus, int)}, to let the bus read the page directly
+	 * from an array.
+	 * 
+	 * @param pageAddress
+	 *            16 bits unsigned int: first address of the page, multiple of 256.
+	 * 
+	 * @param data
+	 *            Array containing the contents of the page.
+	 * 
+	 * @param offset
+	 *            Index in data of the contents of pageAddress.
+	 * 
+	 * @param writable
+	 *            true if writing to the page only modifies data, false if it can
+	 *            change which array the page is read from (e.g. bank registers
+	 *            mapped over a rom). Every write to an address owned by the same
+	 *            component which is not in a page mapped as writable discards its
+	 *            direct pages.
+	 * 
+	 * @throws NullPointerException
+	 *             if data is null.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if pageAddress is not the start of a page owned entirely by a
+	 *             single component.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if data does not contain the 256 bytes starting at offset.
+	 */
+	public void mapPage(int pageAddress, byte[] data, int offset, boolean writable) {
+		Objects.requireNonNull(data);
+		Preconditions.checkBits16(pageAddress);
+		Preconditions.checkArgument(pageAddress % PAGE_SIZE == 0 && pages[pageAddress / PAGE_SIZE] != null);
+		Objects.checkFromIndexSize(offset, PAGE_SIZE, data.length);
+		int page = pageAddress / PAGE_SIZE;
+		directPages[page] = data;
+		directOffsets[page] = offset;
+		directWritable[page] = writable;
+		if (!remappableOwners.contains(pages[page]))
+			remappableOwners.add(pages[page]);
+	}
+
+	/**
+	 * Method used by the owner of a whole page, when asked through
+	 * {@link Component#mapPage(Bus, int)}, to let the bus read the page directly
+	 * from a buffer, which is never written. The page is mapped as not writable
+	 * (see {@link #mapPage(int, byte[], int, boolean)}).
+	 * 
+	 * @param pageAddress
+	 *            16 bits unsigned int: first address of the page, multiple of 256.
+	 * 
+	 * @param data
+	 *            Buffer containing the contents of the page.
+	 * 
+	 * @param offset
+	 *            Index in data of the contents of pageAddress.
+	 * 
+	 * @throws NullPointerException
+	 *             if data is null.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if pageAddress is not the start of a page owned entirely by a
+	 *             single component.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if data does not contain the 256 bytes starting at offset.
+	 */
+	public void mapPage(int pageAddress, ByteBuffer data, int offset) {
+		Objects.requireNonNull(data);
+		Preconditions.checkBits16(pageAddress);
+		Preconditions.checkArgument(pageAddress % PAGE_SIZE == 0 && pages[pageAddress / PAGE_SIZE] != null);
+		Objects.checkFromIndexSize(offset, PAGE_SIZE, data.limit());
+		int page = pageAddress / PAGE_SIZE;
+		directPages[page] = NOT_DIRECT;
+		directBuffers[page] = data;
+		directOffsets[page] = offset;
+		directWritable[page] = false;
+		if (!remappableOwners.contains(pages[page]))
+			remappableOwners.add(pages[page]);
+	}
+
+	/**
+	 * Method to discard all the pages read directly, which are asked again to
+	 * their owners on their next read. It must be called when the owners can map
+	 * their pages differently without a write on the bus, e.g. when their state is
+	 * restored.
+	 */
+	public void unmapAllPages() {
+		Arrays.fill(directPages, null);
+		remappableOwners.clear();
+	}
+
+	/**
+	 * Method to discard the pages read directly from the given array, which are
+	 * asked again to their owners on their next read. It must be called by the
+	 * owner of an array mapped as writable which stops using it, e.g. when the
+	 * array was shared and is copied before a write.
+	 * 
+	 * @param data
+	 *            Array which is no longer read.
+	 */
+	public void unmapData(byte[] data) {
+		for (int page = 0; page < PAGE_COUNT; ++page) {
+			if (directPages[page] == data)
+				directPages[page] = null;
+		}
+	}
+
 	/**
 	 * Method to access contents of an address.
 	 * 
@@ -45,9 +250,24 @@ public final class Bus {
 	 */
 	public int read(int address) {
 		Preconditions.checkBits16(address);
-		Objects.checkIndex(address, RAM_END);
-		for (Component component : components) {
-			int data = component.read(address);
+		int page = address / PAGE_SIZE;
+		byte[] direct = directPages[page];
+		if (direct == null)
+			direct = requestDirectPage(page);
+		if (direct != NOT_DIRECT)
+			return Byte.toUnsignedInt(direct[directOffsets[page] + address % PAGE_SIZE]);
+		ByteBuffer buffer = directBuffers[page];
+		if (buffer != null)
+			return Byte.toUnsignedInt(buffer.get(directOffsets[page] + address % PAGE_SIZE));
+
+		Component owner = owner(address);
+		if (owner != null) {
+			int data = owner.read(address);
+			if (data != Component.NO_DATA)
+				return data;
+		}
+		for (int i = 0; i < components.size(); ++i) {
+			int data = components.get(i).read(address);
 			if (data != Component.NO_DATA) {
 				return data;
 			}
@@ -72,8 +292,64 @@ public final class Bus {
 	public void write(int address, int data) {
 		Preconditions.checkBits16(address);
 		Preconditions.checkBits8(data);
-		for (Component component : components) {
-			component.write(address, data);
+		Component owner = owner(address);
+		if (owner != null) {
+			owner.write(address, data);
+			if (!remappableOwners.isEmpty() && remappableOwners.contains(owner)
+					&& !(directPages[address / PAGE_SIZE] != null && directWritable[address / PAGE_SIZE]))
+				unmapPages(owner);
+		}
+		for (int i = 0; i < components.size(); ++i) {
+			components.get(i).write(address, data);
+		}
+	}
+
+	// Asks the owner of the given page whether it can be read directly and
+	// returns the array it provided, NOT_DIRECT otherwise.
+	private byte[] requestDirectPage(int page) {
+		directPages[page] = NOT_DIRECT;
+		directBuffers[page] = null;
+		directWritable[page] = false;
+		if (pages[page] != null)
+			pages[page].mapPage(this, page * PAGE_SIZE);
+		return directPages[page];
+	}
+
+	// Discards the direct pages of the given owner, they will be asked again on
+	// their next read.
+	private void unmapPages(Component owner) {
+		for (int page = 0; page < PAGE_COUNT; ++page) {
+			if (pages[page] == owner)
+				directPages[page] = null;
 		}
+		remappableOwners.remove(owner);
+	}
+
+	// Returns true if one of the addresses of the range is owned by a component,
+	// checking the pages which are not split at once.
+	private boolean isPartlyOwned(int startAddress, int endAddress) {
+		int address = startAddress;
+		while (address < endAddress) {
+			int page = address / PAGE_SIZE;
+			int pageEnd = Math.min((page + 1) * PAGE_SIZE, endAddress);
+			if (splitPages[page] == null) {
+				if (pages[page] != null)
+					return true;
+			} else {
+				for (int a = address; a < pageEnd; ++a) {
+					if (splitPages[page][a % PAGE_SIZE] != null)
+						return true;
+				}
+			}
+			address = pageEnd;
+		}
+		return false;
+	}
+
+	// Returns the component owning the given address, null if there is none.
+	private Component owner(int address) {
+		int page = address / PAGE_SIZE;
+		Component[] splitPage = splitPages[page];
+		return splitPage == null ? pages[page] : splitPage[address % PAGE_SIZE];
 	}
-}
\ No newline at end of file
+}
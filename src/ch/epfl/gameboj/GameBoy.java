@@ -2,8 +2,10 @@
 
 package ch.epfl.gameboj;
 
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
+import ch.epfl.gameboj.component.Clocked;
 import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.Joypad;
 import ch.epfl.gameboj.component.Timer;
@@ -24,15 +26,25 @@ public final class GameBoy {
 
 	private final Bus bus;
 	private final Cpu cpu;
+	private final Ram workRamMemory;
 	private final RamController workRam;
 	private final RamController echoRam;
 	private final BootRomController bootRomController;
 	private final Timer timer;
 	private final LcdController lcdController;
 	private final Joypad joypad;
+	private final Component[] components;
+	private final Clocked[] clockedComponents;
 	private long cyclesSimulated;
 	public static final long CYCLES_PER_SECOND = 0x10_0000;
+	public static final long CYCLES_PER_FRAME = 17_556;
 	public static final double CYCLES_PER_NANOSECOND = CYCLES_PER_SECOND /  1_000_000_000.0;
+
+	// Header of the saved states: "GBJS", version of the format and size.
+	private static final int STATE_MAGIC = 0x47_42_4A_53;
+	private static final int STATE_VERSION = 1;
+	private static final int STATE_HEADER_SIZE = 3 * Integer.BYTES;
+
 	/**
 	 * Constructor in charge of instantiating all components of the GameBoy and
 	 * attaches them to the bus.
@@ -43,22 +55,35 @@ public final class GameBoy {
 	 *             if cartridge is null.
 	 */
 	public GameBoy(Cartridge cartridge) {
-		Objects.requireNonNull(cartridge);
+		this(Objects.requireNonNull(cartridge), new Cpu());
+	}
+
+	// Private constructor of a GameBoy in its initial state using the given cpu.
+	private GameBoy(Cartridge cartridge, Cpu cpu) {
+		this(new Ram(AddressMap.WORK_RAM_SIZE), cpu, new Timer(cpu), new BootRomController(cartridge),
+				new LcdController(cpu), new Joypad(cpu), 0);
+	}
 
-		Ram ram = new Ram(AddressMap.WORK_RAM_SIZE);
+	// Private constructor in charge of attaching the given components to a new
+	// bus.
+	private GameBoy(Ram workRamMemory, Cpu cpu, Timer timer, BootRomController bootRomController,
+			LcdController lcdController, Joypad joypad, long cyclesSimulated) {
+		this.workRamMemory = workRamMemory;
+		this.cpu = cpu;
+		this.timer = timer;
+		this.bootRomController = bootRomController;
+		this.lcdController = lcdController;
+		this.joypad = joypad;
+		this.cyclesSimulated = cyclesSimulated;
 		bus = new Bus();
-		cpu = new Cpu();
-		timer = new Timer(cpu);
-		bootRomController = new BootRomController(cartridge);
-		workRam = new RamController(ram, AddressMap.WORK_RAM_START, AddressMap.WORK_RAM_END);
-		echoRam = new RamController(ram, AddressMap.ECHO_RAM_START, AddressMap.ECHO_RAM_END);
-		lcdController = new LcdController(cpu);
-		joypad = new Joypad(cpu);
-		Component[] components = new Component[] { cpu, timer, bootRomController, workRam, echoRam, lcdController, joypad};
+		workRam = new RamController(workRamMemory, AddressMap.WORK_RAM_START, AddressMap.WORK_RAM_END);
+		echoRam = new RamController(workRamMemory, AddressMap.ECHO_RAM_START, AddressMap.ECHO_RAM_END);
+		components = new Component[] { cpu, timer, bootRomController, workRam, echoRam, lcdController, joypad};
 
 		for (Component component : components) {
 			component.attachTo(bus);
 		}
+		clockedComponents = new Clocked[] { timer, lcdController, cpu };
 	}
 
 	/**
@@ -73,6 +98,10 @@ public final class GameBoy {
 	/**
 	 * Method to run the cpu until it reaches the cycle specified.
 	 * 
+	 * The components are only cycled at the cycles at which one of them has
+	 * something to do, as given by {@link Clocked#nextNonIdleCycle(long)}, and at
+	 * the last cycle so that their state is up to date when the method returns.
+	 * 
 	 * @param cycles
 	 *            : Cycle the cpu will reach (excluded) after method runs.
 	 * 
@@ -82,11 +111,17 @@ public final class GameBoy {
 	 * 
 	 */
 	public void runUntil(long cycles) {
- 		Preconditions.checkArgument(cycles >= cycles());
-		for (long i = cyclesSimulated; i < cycles; i++) {
-			timer.cycle(i);
-			lcdController.cycle(i);
-			cpu.cycle(i);
+		Preconditions.checkArgument(cycles >= cycles());
+		long cycle = cyclesSimulated;
+		while (cycle < cycles) {
+			long next = cycles - 1;
+			for (Clocked component : clockedComponents) {
+				component.cycle(cycle);
+			}
+			for (Clocked component : clockedComponents) {
+				next = Math.min(next, component.nextNonIdleCycle(cycle + 1));
+			}
+			cycle = Math.max(cycle + 1, next);
 		}
 		cyclesSimulated = cycles;
 	}
@@ -137,4 +172,82 @@ public final class GameBoy {
 		return joypad;
 	}
 
+	/**
+	 * Method to create a GameBoy in the same state as this one, which then runs
+	 * independently of it. The rom of the cartridge is shared, and the memories
+	 * are shared until one of the GameBoys writes into them, 256 bytes being
+	 * copied at a time (see {@link Ram#fork()}). This GameBoy must not run while
+	 * it is forked.
+	 * 
+	 * @return The new GameBoy.
+	 */
+	public GameBoy fork() {
+		Cpu cpuFork = cpu.fork();
+		return new GameBoy(workRamMemory.fork(), cpuFork, timer.fork(cpuFork), bootRomController.fork(),
+				lcdController.fork(cpuFork), joypad.fork(cpuFork), cyclesSimulated);
+	}
+
+	/**
+	 * Method to obtain the size in bytes of the state of the GameBoy, i.e. the
+	 * number of bytes written by {@link #saveState(ByteBuffer)}. It only depends on
+	 * the cartridge.
+	 * 
+	 * @return Size of the state in bytes.
+	 */
+	public int stateSize() {
+		int size = STATE_HEADER_SIZE + Long.BYTES + workRamMemory.size();
+		for (Component component : components)
+			size += component.stateSize();
+		return size;
+	}
+
+	/**
+	 * Method to write the complete state of the GameBoy (registers and memories of
+	 * all the components, and number of cycles simulated) at the position of the
+	 * buffer, which is advanced by {@link #stateSize()} bytes. The roms are not
+	 * part of the state.
+	 * 
+	 * @param buffer
+	 *            Buffer in which the state is written.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the buffer has less than {@link #stateSize()} remaining
+	 *             bytes, in which case nothing is written.
+	 */
+	public void saveState(ByteBuffer buffer) {
+		int size = stateSize();
+		Preconditions.checkArgument(buffer.remaining() >= size);
+		buffer.putInt(STATE_MAGIC).putInt(STATE_VERSION).putInt(size);
+		buffer.putLong(cyclesSimulated);
+		workRamMemory.saveState(buffer);
+		for (Component component : components)
+			component.saveState(buffer);
+	}
+
+	/**
+	 * Method to restore the state written by {@link #saveState(ByteBuffer)} from
+	 * the position of the buffer, which is advanced by {@link #stateSize()} bytes.
+	 * The state must have been saved by a GameBoy built with the same cartridge.
+	 * 
+	 * @param buffer
+	 *            Buffer from which the state is read.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the buffer does not start with a state of the size of the
+	 *             state of this GameBoy, in which case nothing is read.
+	 */
+	public void restoreState(ByteBuffer buffer) {
+		int size = stateSize();
+		int position = buffer.position();
+		Preconditions.checkArgument(buffer.remaining() >= size && buffer.getInt(position) == STATE_MAGIC
+				&& buffer.getInt(position + Integer.BYTES) == STATE_VERSION
+				&& buffer.getInt(position + 2 * Integer.BYTES) == size);
+		buffer.position(position + STATE_HEADER_SIZE);
+		cyclesSimulated = buffer.getLong();
+		workRamMemory.restoreState(buffer);
+		for (Component component : components)
+			component.restoreState(buffer);
+		bus.unmapAllPages();
+	}
+
 }
@@ -0,0 +1,199 @@
+package ch.epfl.gameboj;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Final class recording the states of a GameBoy at regular intervals, to be
+ * able to go back to them.
+ *
+ * Only the newest state is kept entirely. Each older state is stored as the
+ * blocks of 64 bytes in which it differs from the state following it, which
+ * are few since most of the memories do not change from one frame to the next.
+ * Going back one state therefore only consists in copying these blocks into the
+ * newest state. When the memory used exceeds the budget, the oldest states are
+ * discarded.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+public final class RewindBuffer {
+
+	private static final int BLOCK_SIZE = 64;
+	private static final int BLOCK_HEADER_SIZE = Integer.BYTES;
+
+	private final GameBoy gameBoy;
+	private final long cyclesPerSnapshot;
+	private final long byteBudget;
+	private final int stateSize;
+
+	// Snapshots from the oldest to the newest, whose state is latest.
+	private final ArrayDeque<Snapshot> snapshots = new ArrayDeque<>();
+	private byte[] latest;
+	private byte[] scratch;
+	private final ByteBuffer deltaScratch;
+	private long deltaBytes;
+	private long nextSnapshotCycle;
+
+	// Private class for a recorded state: its cycle and, except for the newest
+	// one, the blocks in which it differs from the following one, each preceded
+	// by its index.
+	private static final class Snapshot {
+		private final long cycles;
+		private byte[] delta;
+
+		private Snapshot(long cycles) {
+			this.cycles = cycles;
+		}
+	}
+
+	/**
+	 * Public constructor to create a rewind buffer of the given GameBoy, which
+	 * records its state every given number of frames.
+	 *
+	 * @param gameBoy
+	 *            GameBoy whose states are recorded.
+	 *
+	 * @param framesPerSnapshot
+	 *            number of frames between two recorded states.
+	 *
+	 * @param byteBudget
+	 *            number of bytes the recorded states can use, the newest state
+	 *            being always kept.
+	 *
+	 * @throws NullPointerException
+	 *             if the GameBoy is null.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the number of frames or the budget are not strictly
+	 *             positive.
+	 */
+	public RewindBuffer(GameBoy gameBoy, int framesPerSnapshot, long byteBudget) {
+		this.gameBoy = Objects.requireNonNull(gameBoy);
+		Preconditions.checkArgument(framesPerSnapshot > 0 && byteBudget > 0);
+		this.cyclesPerSnapshot = framesPerSnapshot * GameBoy.CYCLES_PER_FRAME;
+		this.byteBudget = byteBudget;
+		this.stateSize = gameBoy.stateSize();
+		this.latest = new byte[stateSize];
+		this.scratch = new byte[stateSize];
+		this.deltaScratch = ByteBuffer.allocate(stateSize + (stateSize / BLOCK_SIZE + 1) * BLOCK_HEADER_SIZE);
+		this.nextSnapshotCycle = gameBoy.cycles();
+	}
+
+	/**
+	 * Method to run the GameBoy until the given cycle, recording its state each
+	 * time it reaches a multiple of the interval between two states, counted from
+	 * the creation of the buffer or the last rewind.
+	 *
+	 * @param cycles
+	 *            Cycle the GameBoy will reach (excluded).
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the GameBoy already simulated more cycles.
+	 */
+	public void runUntil(long cycles) {
+		Preconditions.checkArgument(cycles >= gameBoy.cycles());
+		while (nextSnapshotCycle <= cycles) {
+			gameBoy.runUntil(Math.max(nextSnapshotCycle, gameBoy.cycles()));
+			snapshot();
+		}
+		gameBoy.runUntil(cycles);
+	}
+
+	/**
+	 * Method to record the current state of the GameBoy, the next one being
+	 * recorded after the interval between two states.
+	 */
+	public void snapshot() {
+		gameBoy.saveState(ByteBuffer.wrap(scratch));
+		Snapshot newest = snapshots.peekLast();
+		if (newest != null) {
+			newest.delta = delta(latest, scratch);
+			deltaBytes += newest.delta.length;
+		}
+		byte[] previous = latest;
+		latest = scratch;
+		scratch = previous;
+		snapshots.addLast(new Snapshot(gameBoy.cycles()));
+		nextSnapshotCycle = gameBoy.cycles() + cyclesPerSnapshot;
+
+		while (snapshots.size() > 1 && memoryUsed() > byteBudget)
+			deltaBytes -= snapshots.removeFirst().delta.length;
+	}
+
+	/**
+	 * Method to restore the newest recorded state which is older than the
+	 * current state of the GameBoy, the more recent ones being discarded.
+	 * Successive calls thus go back further and further. The images of the
+	 * LcdController are not part of the states: the current image stays the one
+	 * drawn before, until the GameBoy draws the frame following the restored
+	 * state.
+	 *
+	 * @return true if the GameBoy was restored, false if no recorded state is
+	 *         older than its current state.
+	 */
+	public boolean rewind() {
+		while (!snapshots.isEmpty() && snapshots.peekLast().cycles >= gameBoy.cycles())
+			discardNewest();
+		if (snapshots.isEmpty())
+			return false;
+		gameBoy.restoreState(ByteBuffer.wrap(latest));
+		nextSnapshotCycle = gameBoy.cycles() + cyclesPerSnapshot;
+		return true;
+	}
+
+	/**
+	 * Accessor for the number of recorded states.
+	 *
+	 * @return the number of states which can be restored.
+	 */
+	public int size() {
+		return snapshots.size();
+	}
+
+	/**
+	 * Method to obtain the number of bytes used by the recorded states, including
+	 * the buffers of the newest state and the one in which the deltas are
+	 * computed.
+	 *
+	 * @return the memory used in bytes.
+	 */
+	public long memoryUsed() {
+		return 2L * stateSize + deltaScratch.capacity() + deltaBytes;
+	}
+
+	// Discards the newest snapshot, the previous one becoming the newest by
+	// applying its delta to latest.
+	private void discardNewest() {
+		snapshots.removeLast();
+		Snapshot newest = snapshots.peekLast();
+		if (newest != null) {
+			apply(newest.delta, latest);
+			deltaBytes -= newest.delta.length;
+			newest.delta = null;
+		}
+	}
+
+	// Returns the blocks of older which differ from newer, each preceded by its
+	// index.
+	private byte[] delta(byte[] older, byte[] newer) {
+		ByteBuffer delta = deltaScratch.clear();
+		for (int start = 0; start < older.length; start += BLOCK_SIZE) {
+			int end = Math.min(start + BLOCK_SIZE, older.length);
+			if (Arrays.mismatch(older, start, end, newer, start, end) != -1)
+				delta.putInt(start / BLOCK_SIZE).put(older, start, end - start);
+		}
+		return Arrays.copyOf(delta.array(), delta.position());
+	}
+
+	// Copies the blocks of the delta in the given state.
+	private static void apply(byte[] delta, byte[] state) {
+		ByteBuffer blocks = ByteBuffer.wrap(delta);
+		while (blocks.hasRemaining()) {
+			int start = blocks.getInt() * BLOCK_SIZE;
+			blocks.get(state, start, Math.min(BLOCK_SIZE, state.length - start));
+		}
+	}
+}
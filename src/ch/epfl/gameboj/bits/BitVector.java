@@ -2,14 +2,18 @@ package ch.epfl.gameboj.bits;
 
 import java.util.Arrays;
 import java.util.Objects;
-import java.util.function.BiFunction;
-import java.util.function.BinaryOperator;
 
 import ch.epfl.gameboj.Preconditions;
 
 /**
  * Public final immutable class which represents a bitVector of a fixed size.
  * 
+ * The operations work on whole blocks of 32 bits. The fused operations
+ * {@link #andNot(BitVector)} and {@link #blend(BitVector, BitVector)} avoid
+ * the intermediate vectors of their equivalent combinations, and the builder
+ * offers the same operations modifying its contents in place. These operations
+ * use the Vector API when it is available (see BlockOperations).
+ * 
  * @author Oscar Pitcho (288225)
  * @author Nizar Ghandri (283161)
  */
@@ -19,6 +23,8 @@ public final class BitVector {
 		WRAPPED, EXTENDED_ZEROES
 	}
 
+	private static final BlockOperations BLOCKS = BlockOperations.fastest();
+
 	private final int[] bitVector;
 
 	/**
@@ -55,6 +61,43 @@ public final class BitVector {
 		this(size, false);
 	}
 
+	/**
+	 * Method to create a new BitVector from its blocks of 32 bits.
+	 * 
+	 * @param blocks
+	 *            Array of the blocks, the one at index 0 containing the bits 0 to
+	 *            31. It is copied.
+	 * 
+	 * @return A new BitVector whose size is 32 times the length of the array.
+	 * 
+	 * @throws NullPointerException
+	 *             if the array is null.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the array is empty.
+	 */
+	public static BitVector ofBlocks(int[] blocks) {
+		Preconditions.checkArgument(blocks.length > 0);
+		return new BitVector(Arrays.copyOf(blocks, blocks.length));
+	}
+
+	/**
+	 * Method to copy the blocks of 32 bits of the bitVector in an array, the one
+	 * containing the bits 0 to 31 first.
+	 * 
+	 * @param destination
+	 *            Array in which the blocks are copied.
+	 * 
+	 * @param offset
+	 *            Index in the array of the first block.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if the blocks do not fit in the array at the given offset.
+	 */
+	public void copyBlocks(int[] destination, int offset) {
+		System.arraycopy(bitVector, 0, destination, offset, bitVector.length);
+	}
+
 	// Private constructor which takes array for coding purposes
 	private BitVector(int[] bitVector) {
 		Objects.requireNonNull(bitVector);
@@ -93,7 +136,9 @@ public final class BitVector {
 	 *         having been negated.
 	 */
 	public BitVector not() {
-		return binaryOperation(this, (x, y) -> ~x);
+		int[] result = new int[bitVector.length];
+		BLOCKS.not(bitVector, result);
+		return new BitVector(result);
 	}
 
 	/**
@@ -115,7 +160,9 @@ public final class BitVector {
 	public BitVector and(BitVector that) {
 		Objects.requireNonNull(that);
 		Preconditions.checkArgument((this.size() == that.size()));
-		return binaryOperation(that, (x, y) -> x & y);
+		int[] result = new int[bitVector.length];
+		BLOCKS.and(bitVector, that.bitVector, result);
+		return new BitVector(result);
 	}
 
 	/**
@@ -137,7 +184,61 @@ public final class BitVector {
 	public BitVector or(BitVector that) {
 		Objects.requireNonNull(that);
 		Preconditions.checkArgument((this.size() == that.size()));
-		return binaryOperation(that, (x, y) -> x | y);
+		int[] result = new int[bitVector.length];
+		BLOCKS.or(bitVector, that.bitVector, result);
+		return new BitVector(result);
+	}
+
+	/**
+	 * Method to perform a bitwise and between the instance and the negation of
+	 * another bitVector, without computing this negation.
+	 * 
+	 * @param that
+	 *            instance of BitVector whose negation is the second part of the
+	 *            conjunction.
+	 * 
+	 * @return A new instance of BitVector equal to this.and(that.not()).
+	 * 
+	 * @throws NullPointerException
+	 *             if the argument is null.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the argument doesn't have the same size as the instance.
+	 */
+	public BitVector andNot(BitVector that) {
+		Objects.requireNonNull(that);
+		Preconditions.checkArgument((this.size() == that.size()));
+		int[] result = new int[bitVector.length];
+		BLOCKS.andNot(bitVector, that.bitVector, result);
+		return new BitVector(result);
+	}
+
+	/**
+	 * Method to replace the bits of the instance by those of another bitVector
+	 * where a mask is 1, in one pass.
+	 * 
+	 * @param that
+	 *            instance of BitVector whose bits are taken where the mask is 1.
+	 * 
+	 * @param mask
+	 *            instance of BitVector selecting the bits of that.
+	 * 
+	 * @return A new instance of BitVector equal to
+	 *         this.andNot(mask).or(that.and(mask)).
+	 * 
+	 * @throws NullPointerException
+	 *             if one of the arguments is null.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the arguments don't have the same size as the instance.
+	 */
+	public BitVector blend(BitVector that, BitVector mask) {
+		Objects.requireNonNull(that);
+		Objects.requireNonNull(mask);
+		Preconditions.checkArgument(this.size() == that.size() && this.size() == mask.size());
+		int[] result = new int[bitVector.length];
+		BLOCKS.blend(bitVector, that.bitVector, mask.bitVector, result);
+		return new BitVector(result);
 	}
 
 	public BitVector shift(int distance) {
@@ -208,36 +309,22 @@ public final class BitVector {
 		return s.toString();
 	}
 
-	// Private method to perform an extraction of the specified type.
+	// Private method to perform an extraction of the specified type. Each block
+	// is made of the high bits of a block of the extension followed by the low
+	// bits of the next one.
 	private int[] extract(int index, int size, ProlongationType prolong) {
 		Preconditions.checkArgument(size % Integer.SIZE == 0 && size > 0);
 		int[] extracted = new int[size / Integer.SIZE];
+		int firstBlock = Math.floorDiv(index, Integer.SIZE);
 		int shiftSize = Math.floorMod(index, Integer.SIZE);
-		int reverseShiftSize = Integer.SIZE - shiftSize;
-		for (int i = 0; i < size; i += Integer.SIZE) {
-			int extendedArrayIndex = Math.floorDiv(i + index, Integer.SIZE);
-			if (shiftSize == 0)
-				extracted[i / Integer.SIZE] = ((prolong == ProlongationType.EXTENDED_ZEROES)
-						&& (index + i < 0 || index + i >= size())) ? 0
-								: bitVector[Math.floorMod(extendedArrayIndex, bitVector.length)];
-			else
-				extracted[i / Integer.SIZE] = (Bits.clip(shiftSize,
-						get32(extendedArrayIndex + 1, prolong)) << reverseShiftSize)
-						| Bits.extract(get32(extendedArrayIndex, prolong), shiftSize, reverseShiftSize);
+		for (int i = 0; i < extracted.length; ++i) {
+			int low = get32(firstBlock + i, prolong);
+			extracted[i] = shiftSize == 0 ? low
+					: (low >>> shiftSize) | (get32(firstBlock + i + 1, prolong) << (Integer.SIZE - shiftSize));
 		}
 		return extracted;
 	}
 
-	// Private method to perform a specified binary operation between two
-	// bitVectors.
-	private BitVector binaryOperation(BitVector that, BinaryOperator<Integer> biOperator) {
-		Preconditions.checkArgument(this.size() == that.size());
-		int[] result = new int[this.bitVector.length];
-		for (int i = 0; i < result.length; ++i)
-			result[i] = biOperator.apply(this.bitVector[i], that.bitVector[i]);
-		return new BitVector(result);
-	}
-
 	// The block of 32 bits in the infinite extension for the specified extension
 	// and index.
 	private int get32(int index, ProlongationType prolong) {
@@ -277,6 +364,19 @@ public final class BitVector {
 			bitVector = new int[size / Integer.SIZE];
 		}
 
+		/**
+		 * Constructor to create a new builder with the contents of a bitVector.
+		 * 
+		 * @param initial
+		 *            bitVector whose bits are copied in the builder.
+		 * 
+		 * @throws NullPointerException
+		 *             if the bitVector is null.
+		 */
+		public Builder(BitVector initial) {
+			bitVector = initial.bitVector.clone();
+		}
+
 		/**
 		 * Method to set an individual byte in the builder.
 		 * 
@@ -309,6 +409,119 @@ public final class BitVector {
 			return this;
 		}
 
+		/**
+		 * Method to negate in place all the bits of the builder.
+		 * 
+		 * @return the instance of the builder after the negation.
+		 * 
+		 * @throws IllegalStateException
+		 *             if the builder has already been built.
+		 */
+		public Builder not() {
+			if (bitVector == null)
+				throw new IllegalStateException();
+			BLOCKS.not(bitVector, bitVector);
+			return this;
+		}
+
+		/**
+		 * Method to perform in place a bitwise and between the builder and a
+		 * bitVector.
+		 * 
+		 * @param that
+		 *            second part of the conjunction.
+		 * 
+		 * @return the instance of the builder after the conjunction.
+		 * 
+		 * @throws IllegalStateException
+		 *             if the builder has already been built.
+		 * 
+		 * @throws IllegalArgumentException
+		 *             if the bitVector doesn't have the size of the builder.
+		 */
+		public Builder and(BitVector that) {
+			checkOperand(that);
+			BLOCKS.and(bitVector, that.bitVector, bitVector);
+			return this;
+		}
+
+		/**
+		 * Method to perform in place a bitwise or between the builder and a
+		 * bitVector.
+		 * 
+		 * @param that
+		 *            second part of the disjunction.
+		 * 
+		 * @return the instance of the builder after the disjunction.
+		 * 
+		 * @throws IllegalStateException
+		 *             if the builder has already been built.
+		 * 
+		 * @throws IllegalArgumentException
+		 *             if the bitVector doesn't have the size of the builder.
+		 */
+		public Builder or(BitVector that) {
+			checkOperand(that);
+			BLOCKS.or(bitVector, that.bitVector, bitVector);
+			return this;
+		}
+
+		/**
+		 * Method to perform in place a bitwise and between the builder and the
+		 * negation of a bitVector (see {@link BitVector#andNot(BitVector)}).
+		 * 
+		 * @param that
+		 *            bitVector whose negation is the second part of the
+		 *            conjunction.
+		 * 
+		 * @return the instance of the builder after the conjunction.
+		 * 
+		 * @throws IllegalStateException
+		 *             if the builder has already been built.
+		 * 
+		 * @throws IllegalArgumentException
+		 *             if the bitVector doesn't have the size of the builder.
+		 */
+		public Builder andNot(BitVector that) {
+			checkOperand(that);
+			BLOCKS.andNot(bitVector, that.bitVector, bitVector);
+			return this;
+		}
+
+		/**
+		 * Method to replace in place the bits of the builder by those of a
+		 * bitVector where a mask is 1 (see
+		 * {@link BitVector#blend(BitVector, BitVector)}).
+		 * 
+		 * @param that
+		 *            bitVector whose bits are taken where the mask is 1.
+		 * 
+		 * @param mask
+		 *            bitVector selecting the bits of that.
+		 * 
+		 * @return the instance of the builder after the replacement.
+		 * 
+		 * @throws IllegalStateException
+		 *             if the builder has already been built.
+		 * 
+		 * @throws IllegalArgumentException
+		 *             if the bitVectors don't have the size of the builder.
+		 */
+		public Builder blend(BitVector that, BitVector mask) {
+			checkOperand(that);
+			checkOperand(mask);
+			BLOCKS.blend(bitVector, that.bitVector, mask.bitVector, bitVector);
+			return this;
+		}
+
+		// Checks that the builder was not built and that the bitVector has its
+		// size.
+		private void checkOperand(BitVector that) {
+			if (bitVector == null)
+				throw new IllegalStateException();
+			Preconditions.checkArgument(that.bitVector.length == bitVector.length);
+		}
+
 		/**
 		 * Method to build the current builder.
 		 * 
@@ -0,0 +1,128 @@
+package ch.epfl.gameboj.bits;
+
+import java.util.Optional;
+
+/**
+ * Package-private interface of the bitwise operations of BitVector on arrays of
+ * blocks of 32 bits. The result array, whose length gives the number of blocks
+ * computed, can be one of the operands, for the operations in place of the
+ * builder.
+ *
+ * The scalar implementation is always available. The one of the vector
+ * directory, which uses the Vector API, is only compiled by the vector profile
+ * and only usable if the module jdk.incubator.vector is present, which is why
+ * it is loaded by reflection.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+interface BlockOperations {
+
+	/**
+	 * Method to compute the negation of the blocks of a.
+	 *
+	 * @param a
+	 *            blocks negated.
+	 *
+	 * @param result
+	 *            array in which the result is written.
+	 */
+	void not(int[] a, int[] result);
+
+	/**
+	 * Method to compute the conjunction of the blocks of a and b.
+	 *
+	 * @param a
+	 *            first operand.
+	 *
+	 * @param b
+	 *            second operand.
+	 *
+	 * @param result
+	 *            array in which the result is written.
+	 */
+	void and(int[] a, int[] b, int[] result);
+
+	/**
+	 * Method to compute the disjunction of the blocks of a and b.
+	 *
+	 * @param a
+	 *            first operand.
+	 *
+	 * @param b
+	 *            second operand.
+	 *
+	 * @param result
+	 *            array in which the result is written.
+	 */
+	void or(int[] a, int[] b, int[] result);
+
+	/**
+	 * Method to compute the conjunction of the blocks of a and of the negation of
+	 * those of b.
+	 *
+	 * @param a
+	 *            first operand.
+	 *
+	 * @param b
+	 *            operand whose negation is the second one.
+	 *
+	 * @param result
+	 *            array in which the result is written.
+	 */
+	void andNot(int[] a, int[] b, int[] result);
+
+	/**
+	 * Method to compute the blocks made of the bits of b where the mask is 1 and
+	 * of those of a elsewhere.
+	 *
+	 * @param a
+	 *            bits taken where the mask is 0.
+	 *
+	 * @param b
+	 *            bits taken where the mask is 1.
+	 *
+	 * @param mask
+	 *            selecting the bits of b.
+	 *
+	 * @param result
+	 *            array in which the result is written.
+	 */
+	void blend(int[] a, int[] b, int[] mask, int[] result);
+
+	/**
+	 * Method to obtain the scalar implementation.
+	 *
+	 * @return the implementation working block by block.
+	 */
+	static BlockOperations scalar() {
+		return ScalarBlockOperations.INSTANCE;
+	}
+
+	/**
+	 * Method to obtain the implementation using the Vector API, if it was compiled
+	 * and the module is present.
+	 *
+	 * @return the implementation, or an empty optional if it is not available.
+	 */
+	static Optional<BlockOperations> vector() {
+		if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+			return Optional.empty();
+		try {
+			Class<?> vector = Class.forName("ch.epfl.gameboj.bits.VectorBlockOperations");
+			return Optional.of((BlockOperations) vector.getDeclaredConstructor().newInstance());
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Method to obtain the fastest available implementation.
+	 *
+	 * @return the implementation using the Vector API if available, the scalar
+	 *         one otherwise.
+	 */
+	static BlockOperations fastest() {
+		return vector().orElse(scalar());
+	}
+}
@@ -0,0 +1,49 @@
+package ch.epfl.gameboj.bits;
+
+/**
+ * Package-private final class implementing the operations on blocks of
+ * BitVector one block of 32 bits at a time.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+final class ScalarBlockOperations implements BlockOperations {
+
+	/**
+	 * The only instance of the class.
+	 */
+	static final ScalarBlockOperations INSTANCE = new ScalarBlockOperations();
+
+	private ScalarBlockOperations() {
+	}
+
+	@Override
+	public void not(int[] a, int[] result) {
+		for (int i = 0; i < result.length; ++i)
+			result[i] = ~a[i];
+	}
+
+	@Override
+	public void and(int[] a, int[] b, int[] result) {
+		for (int i = 0; i < result.length; ++i)
+			result[i] = a[i] & b[i];
+	}
+
+	@Override
+	public void or(int[] a, int[] b, int[] result) {
+		for (int i = 0; i < result.length; ++i)
+			result[i] = a[i] | b[i];
+	}
+
+	@Override
+	public void andNot(int[] a, int[] b, int[] result) {
+		for (int i = 0; i < result.length; ++i)
+			result[i] = a[i] & ~b[i];
+	}
+
+	@Override
+	public void blend(int[] a, int[] b, int[] mask, int[] result) {
+		for (int i = 0; i < result.length; ++i)
+			result[i] = a[i] ^ ((a[i] ^ b[i]) & mask[i]);
+	}
+}
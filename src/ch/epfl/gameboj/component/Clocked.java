@@ -20,4 +20,21 @@ public interface Clocked {
 	 */
 	void cycle(long cycle);
 
+	/**
+	 * Method to obtain the first cycle, greater or equal to the one given in
+	 * argument, at which the component has something to do. Cycles before it can
+	 * be skipped: the component catches up with them the next time it is cycled.
+	 * By default, the component has to be cycled at every cycle.
+	 * 
+	 * @param cycle
+	 *            : first cycle which has not been simulated yet.
+	 * 
+	 * @return The first cycle at which the component has to be cycled,
+	 *         Long.MAX_VALUE if there is none as long as no other component
+	 *         interacts with it.
+	 */
+	default long nextNonIdleCycle(long cycle) {
+		return cycle;
+	}
+
 }
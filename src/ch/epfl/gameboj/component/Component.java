@@ -1,6 +1,8 @@
 
 package ch.epfl.gameboj.component;
 
+import java.nio.ByteBuffer;
+
 import ch.epfl.gameboj.Bus;
 
 /**
@@ -55,4 +57,57 @@ public interface Component {
 		bus.attach(this);
 	}
 
+	/**
+	 * Method called by the bus to let the component, which owns the whole page of
+	 * 256 addresses starting at pageAddress, provide the array from which the page
+	 * can be read directly, through {@link Bus#mapPage(int, byte[], int, boolean)}.
+	 * Does nothing by default, in which case the page is read through read.
+	 * 
+	 * @param bus
+	 *            Bus asking for the page.
+	 * 
+	 * @param pageAddress
+	 *            First address of the page, multiple of 256.
+	 */
+	default void mapPage(Bus bus, int pageAddress) {
+	}
+
+	/**
+	 * Method to obtain the number of bytes written by
+	 * {@link #saveState(ByteBuffer)}. The component has no state by default.
+	 * 
+	 * @return Size of the state of the component in bytes.
+	 */
+	default int stateSize() {
+		return 0;
+	}
+
+	/**
+	 * Method to write the state of the component, i.e. everything which can change
+	 * while the GameBoy runs, at the position of the buffer, which is advanced by
+	 * {@link #stateSize()} bytes. Does nothing by default.
+	 * 
+	 * @param buffer
+	 *            Buffer in which the state is written.
+	 * 
+	 * @throws java.nio.BufferOverflowException
+	 *             if the buffer does not have enough remaining bytes.
+	 */
+	default void saveState(ByteBuffer buffer) {
+	}
+
+	/**
+	 * Method to restore the state written by {@link #saveState(ByteBuffer)} on a
+	 * component built in the same way, from the position of the buffer, which is
+	 * advanced by {@link #stateSize()} bytes. Does nothing by default.
+	 * 
+	 * @param buffer
+	 *            Buffer from which the state is read.
+	 * 
+	 * @throws java.nio.BufferUnderflowException
+	 *             if the buffer does not have enough remaining bytes.
+	 */
+	default void restoreState(ByteBuffer buffer) {
+	}
+
 }
@@ -1,8 +1,10 @@
 package ch.epfl.gameboj.component;
 
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.bits.Bits;
 import ch.epfl.gameboj.component.cpu.Cpu;
@@ -20,6 +22,7 @@ public final class Joypad implements Component {
 	private int lines[];
 	private int REG_P1;
 	private static int ACTIVE_KEY_ENCODING_SIZE = 4;
+	private static final int STATE_SIZE = 3;
 
 	/**
 	 * Public enum which represents the keys on the Joypad.
@@ -55,6 +58,11 @@ public final class Joypad implements Component {
 		lines = new int[2];
 	}
 
+	@Override
+	public void attachTo(Bus bus) {
+		bus.attach(this, AddressMap.REG_P1, AddressMap.REG_P1 + 1);
+	}
+
 	@Override
 	public int read(int address) {
 		Preconditions.checkBits16(address);
@@ -96,6 +104,42 @@ public final class Joypad implements Component {
 		changeStateAndThrow(key, false);
 	}
 
+	@Override
+	public int stateSize() {
+		return STATE_SIZE;
+	}
+
+	@Override
+	public void saveState(ByteBuffer buffer) {
+		buffer.put((byte) lines[0]).put((byte) lines[1]).put((byte) REG_P1);
+	}
+
+	@Override
+	public void restoreState(ByteBuffer buffer) {
+		lines[0] = Bits.clip(ACTIVE_KEY_ENCODING_SIZE, buffer.get());
+		lines[1] = Bits.clip(ACTIVE_KEY_ENCODING_SIZE, buffer.get());
+		REG_P1 = Byte.toUnsignedInt(buffer.get());
+	}
+
+	/**
+	 * Method to create a joypad in the same state as this one, attached to the
+	 * given cpu.
+	 * 
+	 * @param cpu
+	 *            with which the new joypad is attached
+	 * 
+	 * @return the new joypad.
+	 * 
+	 * @throws NullPointerException
+	 *             if the argument is null.
+	 */
+	public Joypad fork(Cpu cpu) {
+		Joypad that = new Joypad(cpu);
+		that.lines = lines.clone();
+		that.REG_P1 = REG_P1;
+		return that;
+	}
+
 	// Private method to change the state of P1 and raise interrupts.
 	private void changeStateAndThrow(Key key, boolean pressKey) {
 		int line = lines[key.line()];
@@ -1,9 +1,11 @@
 
 package ch.epfl.gameboj.component;
 
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.bits.Bits;
 import ch.epfl.gameboj.component.cpu.Cpu;
@@ -19,7 +21,11 @@ import ch.epfl.gameboj.component.cpu.Cpu.Interrupt;
  */
 public final class Timer implements Component, Clocked {
 
+	private static final int COUNTER_STEP = 4;
+	private static final int STATE_SIZE = Long.BYTES + Short.BYTES + 3;
+
 	private final Cpu cpu;
+	private long lastCycle = -1;
 	private int mainCounter;
 	private int TIMA;
 	private int TMA;
@@ -39,11 +45,27 @@ public final class Timer implements Component, Clocked {
 		this.cpu = cpu;
 	}
 
+	@Override
+	public void attachTo(Bus bus) {
+		bus.attach(this, AddressMap.REG_DIV, AddressMap.REG_TAC + 1);
+	}
+
 	@Override
 	public void cycle(long cycle) {
-		boolean state = state();
-		mainCounter = Bits.clip(16, mainCounter + 4);
-		incIfChange(state);
+		if (cycle > lastCycle) {
+			advance(cycle - lastCycle);
+			lastCycle = cycle;
+		}
+	}
+
+	@Override
+	public long nextNonIdleCycle(long cycle) {
+		if (!Bits.test(TAC, 2))
+			return Long.MAX_VALUE;
+		int period = 1 << (bitPosition() + 1);
+		long firstIncrement = lastCycle + (period - mainCounter % period) / COUNTER_STEP;
+		long overflow = firstIncrement + (long) (0xFF - TIMA) * (period / COUNTER_STEP);
+		return Math.max(cycle, overflow);
 	}
 
 	@Override
@@ -87,6 +109,47 @@ public final class Timer implements Component, Clocked {
 		}
 	}
 
+	@Override
+	public int stateSize() {
+		return STATE_SIZE;
+	}
+
+	@Override
+	public void saveState(ByteBuffer buffer) {
+		buffer.putLong(lastCycle).putShort((short) mainCounter).put((byte) TIMA).put((byte) TMA).put((byte) TAC);
+	}
+
+	@Override
+	public void restoreState(ByteBuffer buffer) {
+		lastCycle = buffer.getLong();
+		mainCounter = Short.toUnsignedInt(buffer.getShort());
+		TIMA = Byte.toUnsignedInt(buffer.get());
+		TMA = Byte.toUnsignedInt(buffer.get());
+		TAC = Bits.clip(3, buffer.get());
+	}
+
+	/**
+	 * Method to create a timer in the same state as this one, connected to the
+	 * given cpu.
+	 * 
+	 * @param cpu
+	 *            The CPU with which the new timer will be connected.
+	 * 
+	 * @return The new timer.
+	 * 
+	 * @throws NullPointerException
+	 *             if the cpu given in argument is null.
+	 */
+	public Timer fork(Cpu cpu) {
+		Timer that = new Timer(cpu);
+		that.lastCycle = lastCycle;
+		that.mainCounter = mainCounter;
+		that.TIMA = TIMA;
+		that.TMA = TMA;
+		that.TAC = TAC;
+		return that;
+	}
+
 	private boolean state() {
 		return Bits.test(TAC, 2) && Bits.test(mainCounter, bitPosition());
 	}
@@ -105,6 +168,34 @@ public final class Timer implements Component, Clocked {
 			return 0;
 		}
 	}
+	// Advances the main counter by the given number of cycles and increments
+	// TIMA once for each falling edge of the bit of the main counter selected by
+	// TAC, i.e. each time the counter goes past a multiple of twice its weight.
+	private void advance(long cycles) {
+		long newCounter = mainCounter + COUNTER_STEP * cycles;
+		if (Bits.test(TAC, 2)) {
+			int period = 1 << (bitPosition() + 1);
+			incTIMA(newCounter / period - mainCounter / period);
+		}
+		mainCounter = (int) (newCounter % (1 << 16));
+	}
+
+	// Increments TIMA the given number of times, reloading TMA and raising an
+	// interrupt at each overflow.
+	private void incTIMA(long increments) {
+		while (increments > 0) {
+			int untilOverflow = 0x100 - TIMA;
+			if (increments < untilOverflow) {
+				TIMA += (int) increments;
+				increments = 0;
+			} else {
+				increments -= untilOverflow;
+				cpu.requestInterrupt(Interrupt.TIMER);
+				TIMA = TMA;
+			}
+		}
+	}
+
 	private void incIfChange(boolean state) {
 		if (state & !state()) {
 			if (TIMA == 0xFF) {
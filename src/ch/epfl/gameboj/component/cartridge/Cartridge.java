@@ -2,10 +2,10 @@
 package ch.epfl.gameboj.component.cartridge;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
 
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.memory.Rom;
@@ -32,6 +32,11 @@ public final class Cartridge implements Component {
 		this.mbc1 = component;
 	}
 
+	@Override
+	public void mapPage(Bus bus, int pageAddress) {
+		mbc1.mapPage(bus, pageAddress);
+	}
+
 	@Override
 	public int read(int address) {
 		Preconditions.checkBits16(address);
@@ -46,7 +51,37 @@ public final class Cartridge implements Component {
 	}
 
 	/**
-	 * Method to create a new cartridge from a file given in argument.
+	 * Method to create a cartridge in the same state as this one. The rom is
+	 * shared, and the ram of the cartridge, if any, is forked (see
+	 * {@link ch.epfl.gameboj.component.memory.Ram#fork()}).
+	 * 
+	 * @return The new cartridge.
+	 */
+	public Cartridge fork() {
+		return new Cartridge(mbc1 instanceof MBC1 ? ((MBC1) mbc1).fork() : mbc1);
+	}
+
+	@Override
+	public int stateSize() {
+		return mbc1.stateSize();
+	}
+
+	@Override
+	public void saveState(ByteBuffer buffer) {
+		mbc1.saveState(buffer);
+	}
+
+	@Override
+	public void restoreState(ByteBuffer buffer) {
+		mbc1.restoreState(buffer);
+	}
+
+	/**
+	 * Method to create a new cartridge from a file given in argument. The contents
+	 * are obtained through {@link RomCache#shared()}, so that all the cartridges
+	 * of a game share them, each with its own banks and ram, and that creating
+	 * one again does not access the file. The file can be modified while the
+	 * cartridge is used, the cache owning a copy of its contents.
 	 * 
 	 * @param file
 	 *            The file whose contents are converted into a rom.
@@ -61,17 +96,37 @@ public final class Cartridge implements Component {
 	 *             if the cartridge is not of the correct type.
 	 */
 	public static Cartridge ofFile(File file) throws IOException, IllegalArgumentException {
-		try (InputStream dataFromFile = new FileInputStream(file)) {
-			byte[] romContents = dataFromFile.readAllBytes();
-			Component mbcXController;
-			if(romContents[CARTRIDGE_TYPE_ADDRESS] == 0)
-				mbcXController =  new MBC0(new Rom(romContents));
-			else if(romContents[CARTRIDGE_TYPE_ADDRESS] >= 1 && romContents[CARTRIDGE_TYPE_ADDRESS] < 4)
-				mbcXController =  new MBC1(new Rom(romContents), RAM_SIZES[romContents[RAM_SIZES_ADDRESS]]);
-			else
-				throw new IllegalArgumentException();
-			return new Cartridge(mbcXController);
-		}
+		return ofBuffer(RomCache.shared().load(file));
+	}
 
+	/**
+	 * Method to create a new cartridge whose rom contains the bytes of the buffer
+	 * between its position and its limit. The bytes are not copied, the buffer
+	 * must therefore not be modified while the cartridge is used, but it can be
+	 * shared between several cartridges.
+	 * 
+	 * @param data
+	 *            The buffer containing the contents of the rom.
+	 * 
+	 * @return A new cartridge with a mbcoController that is connected to the rom
+	 *         with the contents of the buffer.
+	 * 
+	 * @throws NullPointerException
+	 *             if the buffer is null.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the cartridge is not of the correct type.
+	 */
+	public static Cartridge ofBuffer(ByteBuffer data) {
+		Rom rom = Rom.ofBuffer(data);
+		int type = rom.read(CARTRIDGE_TYPE_ADDRESS);
+		Component mbcXController;
+		if (type == 0)
+			mbcXController = new MBC0(rom);
+		else if (type >= 1 && type < 4)
+			mbcXController = new MBC1(rom, RAM_SIZES[rom.read(RAM_SIZES_ADDRESS)]);
+		else
+			throw new IllegalArgumentException();
+		return new Cartridge(mbcXController);
 	}
 }
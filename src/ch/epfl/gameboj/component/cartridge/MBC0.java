@@ -3,6 +3,7 @@ package ch.epfl.gameboj.component.cartridge;
 
 import java.util.Objects;
 
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.memory.Rom;
@@ -37,6 +38,12 @@ public final class MBC0 implements Component {
 		this.rom = rom;
 	}
 
+	@Override
+	public void mapPage(Bus bus, int pageAddress) {
+		if (pageAddress < ROM_SIZE)
+			rom.mapPage(bus, pageAddress, pageAddress);
+	}
+
 	@Override
 	public int read(int address) {
 		Preconditions.checkBits16(address);
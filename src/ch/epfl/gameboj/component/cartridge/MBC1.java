@@ -3,6 +3,9 @@ package ch.epfl.gameboj.component.cartridge;
 import static ch.epfl.gameboj.Preconditions.checkBits16;
 import static ch.epfl.gameboj.Preconditions.checkBits8;
 
+import java.nio.ByteBuffer;
+
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.bits.Bits;
 import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.memory.Ram;
@@ -10,6 +13,7 @@ import ch.epfl.gameboj.component.memory.Rom;
 
 public final class MBC1 implements Component {
     private static final int RAM_ENABLE = 0xA;
+    private static final int STATE_SIZE = 4;
 
     private enum Mode { MODE_0, MODE_1 };
 
@@ -22,8 +26,12 @@ public final class MBC1 implements Component {
     private final int romMask, ramMask;
 
     public MBC1(Rom rom, int ramSize) {
+        this(rom, new Ram(ramSize));
+    }
+
+    private MBC1(Rom rom, Ram ram) {
         this.rom = rom;
-        this.ram = new Ram(ramSize);
+        this.ram = ram;
 
         this.ramEnabled = false;
         this.mode = Mode.MODE_0;
@@ -31,7 +39,7 @@ public final class MBC1 implements Component {
         this.ramRom2 = 0;
 
         this.romMask = rom.size() - 1;
-        this.ramMask = ramSize - 1;
+        this.ramMask = ram.size() - 1;
     }
 
     public int read(int address) {
@@ -47,6 +55,22 @@ public final class MBC1 implements Component {
         }
     }
 
+    @Override
+    public void mapPage(Bus bus, int pageAddress) {
+        switch (Bits.extract(checkBits16(pageAddress), 13, 3)) {
+        case 0: case 1:
+            rom.mapPage(bus, pageAddress, romAddress(msb2(), 0, pageAddress));
+            break;
+        case 2: case 3:
+            rom.mapPage(bus, pageAddress, romAddress(ramRom2, romLsb5, pageAddress));
+            break;
+        case 5:
+            if (ramEnabled && ram.size() > 0)
+                ram.mapPage(bus, pageAddress, ramAddress(pageAddress));
+            break;
+        }
+    }
+
     @Override
     public void write(int address, int data) {
         checkBits8(data);
@@ -70,6 +94,35 @@ public final class MBC1 implements Component {
         }
     }
 
+    public MBC1 fork() {
+        MBC1 that = new MBC1(rom, ram.fork());
+        that.ramEnabled = ramEnabled;
+        that.mode = mode;
+        that.romLsb5 = romLsb5;
+        that.ramRom2 = ramRom2;
+        return that;
+    }
+
+    @Override
+    public int stateSize() {
+        return STATE_SIZE + ram.size();
+    }
+
+    @Override
+    public void saveState(ByteBuffer buffer) {
+        buffer.put((byte) (ramEnabled ? 1 : 0)).put((byte) mode.ordinal()).put((byte) romLsb5).put((byte) ramRom2);
+        ram.saveState(buffer);
+    }
+
+    @Override
+    public void restoreState(ByteBuffer buffer) {
+        ramEnabled = buffer.get() != 0;
+        mode = Bits.test(buffer.get(), 0) ? Mode.MODE_1 : Mode.MODE_0;
+        romLsb5 = Math.max(1, Bits.clip(5, buffer.get()));
+        ramRom2 = Bits.clip(2, buffer.get());
+        ram.restoreState(buffer);
+    }
+
     private int msb2() {
         switch (mode) {
         case MODE_0: return 0;
@@ -0,0 +1,243 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import ch.epfl.gameboj.Preconditions;
+
+/**
+ * Final class representing a cache of the contents of the rom files, shared by
+ * the whole process through {@link #shared()}, so that all the cartridges of a
+ * game use the same immutable contents and that loading a game again does not
+ * access the file. The contents are read into memory owned by the cache, so
+ * that they are not affected by later modifications of the file.
+ *
+ * The contents are identified by the checksums of the header of the rom and a
+ * hash of the whole rom: two files with the same contents share them. A file is
+ * loaded again when its size or modification time changed. When the contents
+ * exceed the budget of the cache, the least recently used ones are forgotten;
+ * the cartridges using them keep them.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+public final class RomCache {
+
+	private static final long DEFAULT_BYTE_BUDGET = 64L << 20;
+	private static final int CHECKSUMS_START = 0x14D;
+	private static final int CHECKSUMS_END = 0x150;
+	private static final String HASH_ALGORITHM = "SHA-256";
+
+	private static final RomCache SHARED = new RomCache(DEFAULT_BYTE_BUDGET);
+
+	// Contents from the least to the most recently used.
+	private final LinkedHashMap<ContentKey, ByteBuffer> contents = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<FileKey, ContentKey> files = new HashMap<>();
+	private long byteBudget;
+	private long bytes;
+
+	// Private class identifying the contents of a rom.
+	private static final class ContentKey {
+		private final int checksums;
+		private final byte[] hash;
+
+		private ContentKey(ByteBuffer data) {
+			int checksums = 0;
+			for (int i = CHECKSUMS_START; i < Math.min(CHECKSUMS_END, data.limit()); ++i)
+				checksums = checksums << Byte.SIZE | Byte.toUnsignedInt(data.get(i));
+			this.checksums = checksums;
+			try {
+				MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+				digest.update(data.duplicate());
+				this.hash = digest.digest();
+			} catch (NoSuchAlgorithmException e) {
+				throw new Error(e);
+			}
+		}
+
+		@Override
+		public boolean equals(Object that) {
+			return that instanceof ContentKey && checksums == ((ContentKey) that).checksums
+					&& Arrays.equals(hash, ((ContentKey) that).hash);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(checksums, Arrays.hashCode(hash));
+		}
+	}
+
+	// Private class identifying a version of a file.
+	private static final class FileKey {
+		private final Path path;
+		private final long size;
+		private final long lastModified;
+
+		private FileKey(Path path) throws IOException {
+			this.path = path.toRealPath();
+			BasicFileAttributes attributes = Files.readAttributes(this.path, BasicFileAttributes.class);
+			this.size = attributes.size();
+			this.lastModified = attributes.lastModifiedTime().toMillis();
+		}
+
+		@Override
+		public boolean equals(Object that) {
+			return that instanceof FileKey && path.equals(((FileKey) that).path) && size == ((FileKey) that).size
+					&& lastModified == ((FileKey) that).lastModified;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(path, size, lastModified);
+		}
+	}
+
+	/**
+	 * Public constructor to create an empty cache with the given budget.
+	 *
+	 * @param byteBudget
+	 *            number of bytes of contents kept by the cache.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the budget is negative.
+	 */
+	public RomCache(long byteBudget) {
+		Preconditions.checkArgument(byteBudget >= 0);
+		this.byteBudget = byteBudget;
+	}
+
+	/**
+	 * Accessor for the cache shared by the whole process, used by
+	 * {@link Cartridge#ofFile(File)}, whose budget is initially 64 MB.
+	 *
+	 * @return the shared cache.
+	 */
+	public static RomCache shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Method to create a cartridge from a file, whose contents are taken from the
+	 * cache, or loaded and added to it.
+	 *
+	 * @param file
+	 *            The file whose contents are converted into a rom.
+	 *
+	 * @return A new cartridge, whose rom shares its contents with the other
+	 *         cartridges of the same game.
+	 *
+	 * @throws IOException
+	 *             if the file given in argument cannot be read.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the cartridge is not of the correct type.
+	 */
+	public Cartridge cartridge(File file) throws IOException {
+		return Cartridge.ofBuffer(load(file));
+	}
+
+	/**
+	 * Method to change the budget of the cache, forgetting the least recently
+	 * used contents if needed.
+	 *
+	 * @param byteBudget
+	 *            number of bytes of contents kept by the cache.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the budget is negative.
+	 */
+	public synchronized void setByteBudget(long byteBudget) {
+		Preconditions.checkArgument(byteBudget >= 0);
+		this.byteBudget = byteBudget;
+		evict();
+	}
+
+	/**
+	 * Method to obtain the number of bytes of the contents kept by the cache.
+	 *
+	 * @return the size of the cached contents.
+	 */
+	public synchronized long bytes() {
+		return bytes;
+	}
+
+	/**
+	 * Method to obtain the number of different contents kept by the cache.
+	 *
+	 * @return the number of cached roms.
+	 */
+	public synchronized int size() {
+		return contents.size();
+	}
+
+	/**
+	 * Method to forget all the contents of the cache.
+	 */
+	public synchronized void clear() {
+		contents.clear();
+		files.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Package-private method to obtain the contents of the given file, which are
+	 * shared by all the callers and must not be modified.
+	 *
+	 * @param file
+	 *            read.
+	 *
+	 * @return the contents of the file.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	ByteBuffer load(File file) throws IOException {
+		FileKey fileKey = new FileKey(file.toPath());
+		synchronized (this) {
+			ContentKey contentKey = files.get(fileKey);
+			ByteBuffer data = contentKey == null ? null : contents.get(contentKey);
+			if (data != null)
+				return data;
+		}
+
+		// The file is read and hashed without holding the lock.
+		ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(fileKey.path));
+		ContentKey contentKey = new ContentKey(data);
+		synchronized (this) {
+			ByteBuffer cached = contents.get(contentKey);
+			if (cached == null) {
+				contents.put(contentKey, data);
+				bytes += data.limit();
+				cached = data;
+			}
+			files.keySet().removeIf(key -> key.path.equals(fileKey.path));
+			files.put(fileKey, contentKey);
+			evict();
+			return cached;
+		}
+	}
+
+	// Forgets the least recently used contents until the budget is respected,
+	// with the files which had them.
+	private void evict() {
+		Iterator<Map.Entry<ContentKey, ByteBuffer>> it = contents.entrySet().iterator();
+		while (bytes > byteBudget && it.hasNext()) {
+			Map.Entry<ContentKey, ByteBuffer> evicted = it.next();
+			bytes -= evicted.getValue().limit();
+			it.remove();
+			files.values().removeIf(evicted.getKey()::equals);
+		}
+	}
+}
@@ -1,12 +1,11 @@
 package ch.epfl.gameboj.component.cpu;
 
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 import ch.epfl.gameboj.AddressMap;
 import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
-import ch.epfl.gameboj.Register;
-import ch.epfl.gameboj.RegisterFile;
 import ch.epfl.gameboj.bits.Bit;
 import ch.epfl.gameboj.bits.Bits;
 import ch.epfl.gameboj.component.Clocked;
@@ -37,28 +36,36 @@ public final class Cpu implements Component, Clocked {
 	private int IE; // Interruptions enabled.
 	private int IF; // Interruptions raised.
 
-	private static final Opcode[] DIRECT_OPCODE_TABLE = buildOpcodeTable(Opcode.Kind.DIRECT);
-	private static final Opcode[] PREFIXED_OPCODE_TABLE = buildOpcodeTable(Opcode.Kind.PREFIXED);
+	private static final DecodedOpcode[] DIRECT_OPCODE_TABLE = buildOpcodeTable(Opcode.Kind.DIRECT);
+	private static final DecodedOpcode[] PREFIXED_OPCODE_TABLE = buildOpcodeTable(Opcode.Kind.PREFIXED);
 
 	private Bus bus;
-	private final Ram highRam = new Ram(AddressMap.HIGH_RAM_SIZE);
-
-	private enum Reg implements Register {
-		A, F, B, C, D, E, H, L
-	}
-
-	private final RegisterFile<Reg> reg = new RegisterFile<Reg>(Reg.values());
-
-	private enum Reg16 {
-		AF(Reg.A, Reg.F), BC(Reg.B, Reg.C), DE(Reg.D, Reg.E), HL(Reg.H, Reg.L);
-
-		private final Reg reg1;
-		private final Reg reg2;
-
-		private Reg16(Reg f, Reg s) {
-			reg1 = f;
-			reg2 = s;
-		}
+	private final Ram highRam;
+
+	// Indices of the 8 bits registers in regs. The two registers of a 16 bits
+	// register are adjacent, the most significant one first, and the 16 bits
+	// registers are designated by the index of their most significant register.
+	private static final int A = 0, F = 1, B = 2, C = 3, D = 4, E = 5, H = 6, L = 7;
+	private static final int AF = A, BC = B, DE = D, HL = H;
+	private static final int NBR_REGS = 8;
+	private static final int NO_REG = -1;
+
+	private final int[] regs = new int[NBR_REGS];
+
+	// The flags of the 8 bits additions and subtractions are evaluated lazily: the
+	// operands of the last one are recorded, and F is only computed when it is
+	// read. The carry is kept from the previous flags by increments and
+	// decrements.
+	private LazyFlags lazyFlags = LazyFlags.NONE;
+	private int lazyL;
+	private int lazyR;
+	private int lazyCarryIn;
+	private boolean lazyKeepsC;
+	private boolean lazyC;
+
+	// Private enum for the operation whose flags are pending.
+	private enum LazyFlags {
+		NONE, ADD, SUB
 	}
 
 	/**
@@ -75,18 +82,43 @@ public final class Cpu implements Component, Clocked {
 		CPU // leaves the flag as it is
 	}
 
-	/***
-	 * General enumeration for the 8 indices of an opcode's encoding.
+	/**
+	 * Opcode whose operands are decoded once when the opcode tables are built,
+	 * instead of being extracted from its encoding each time it is executed.
 	 *
 	 * @author Oscar Pitcho (288225)
-	 * @author Nizar Ghandri
+	 * @author Nizar Ghandri (283161)
 	 */
-	private enum OpcodeIndex implements Bit {
-		I0, I1, I2, I3, I4, I5, I6, I7;
-
-		private static OpcodeIndex index(int i) {
-			Objects.checkIndex(i, 8);
-			return OpcodeIndex.values()[i];
+	private static final class DecodedOpcode {
+		private final Opcode.Family family;
+		private final int totalBytes;
+		private final int cycles;
+		private final int additionalCycles;
+		private final int reg0; // 8 bits register encoded from bit 0, NO_REG for (HL).
+		private final int reg3; // 8 bits register encoded from bit 3, NO_REG for (HL).
+		private final int reg16; // AF stands for SP where the family uses SP.
+		private final int hlIncrement;
+		private final boolean bit3;
+		private final RotDir rotDir;
+		private final int index; // Bit index, or reset index for RST.
+		private final boolean set;
+		private final int condition; // -1 for families without condition.
+
+		private DecodedOpcode(Opcode opcode) {
+			family = opcode.family;
+			totalBytes = opcode.totalBytes;
+			cycles = opcode.cycles;
+			additionalCycles = opcode.additionalCycles;
+			reg0 = extractReg(opcode, 0);
+			reg3 = extractReg(opcode, 3);
+			reg16 = family == Opcode.Family.LD_HLSP_S8 ? (Bits.test(opcode.encoding, 4) ? HL : AF)
+					: extractReg16(opcode);
+			hlIncrement = extractHlIncrement(opcode);
+			bit3 = Bits.test(opcode.encoding, 3);
+			rotDir = bit3 ? RotDir.RIGHT : RotDir.LEFT;
+			index = Bits.extract(opcode.encoding, 3, 3);
+			set = Bits.test(opcode.encoding, 6);
+			condition = hasCondition(opcode) ? Bits.extract(opcode.encoding, 3, 2) : -1;
 		}
 	}
 
@@ -102,6 +134,18 @@ public final class Cpu implements Component, Clocked {
 		VBLANK, LCD_STAT, TIMER, SERIAL, JOYPAD
 	}
 
+	/**
+	 * Public constructor to create a cpu whose registers and high ram are all 0.
+	 */
+	public Cpu() {
+		this(new Ram(AddressMap.HIGH_RAM_SIZE));
+	}
+
+	// Private constructor of a cpu using the given high ram.
+	private Cpu(Ram highRam) {
+		this.highRam = highRam;
+	}
+
 	@Override
 	public void cycle(long cycle) {
 		/*if(cycle %10_000 == 0)
@@ -116,6 +160,13 @@ public final class Cpu implements Component, Clocked {
 			return;
 	}
 
+	@Override
+	public long nextNonIdleCycle(long cycle) {
+		if (nextNonIdleCycle == Long.MAX_VALUE)
+			return findInterruption() != -1 ? cycle : Long.MAX_VALUE;
+		return nextNonIdleCycle >= cycle ? nextNonIdleCycle : Long.MAX_VALUE;
+	}
+
 	@Override
 	public int read(int address) {
 		if (AddressMap.HIGH_RAM_START <= address && address < AddressMap.HIGH_RAM_END) {
@@ -144,7 +195,67 @@ public final class Cpu implements Component, Clocked {
 	public void attachTo(Bus bus) {
 		Objects.requireNonNull(bus);
 		this.bus = bus;
-		bus.attach(this);
+		bus.attach(this, AddressMap.REG_IF, AddressMap.REG_IF + 1);
+		bus.attach(this, AddressMap.HIGH_RAM_START, AddressMap.REG_IE + 1);
+	}
+
+	@Override
+	public int stateSize() {
+		return 2 * Short.BYTES + 3 + NBR_REGS + Long.BYTES + highRam.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The pending flags are evaluated first, so that F is saved as a register.
+	 */
+	@Override
+	public void saveState(ByteBuffer buffer) {
+		flags();
+		buffer.putShort((short) PC).putShort((short) SP).put((byte) (IME ? 1 : 0)).put((byte) IE).put((byte) IF);
+		for (int r = 0; r < NBR_REGS; ++r)
+			buffer.put((byte) regs[r]);
+		buffer.putLong(nextNonIdleCycle);
+		highRam.saveState(buffer);
+	}
+
+	@Override
+	public void restoreState(ByteBuffer buffer) {
+		PC = Short.toUnsignedInt(buffer.getShort());
+		SP = Short.toUnsignedInt(buffer.getShort());
+		IME = buffer.get() != 0;
+		IE = Byte.toUnsignedInt(buffer.get());
+		IF = Byte.toUnsignedInt(buffer.get());
+		for (int r = 0; r < NBR_REGS; ++r)
+			regs[r] = Byte.toUnsignedInt(buffer.get());
+		lazyFlags = LazyFlags.NONE;
+		nextNonIdleCycle = buffer.getLong();
+		highRam.restoreState(buffer);
+	}
+
+	/**
+	 * Method to create a cpu in the same state as this one, whose high ram is
+	 * forked from this one (see {@link Ram#fork()}). The new cpu is not attached
+	 * to any bus.
+	 * 
+	 * @return The new cpu.
+	 */
+	public Cpu fork() {
+		Cpu that = new Cpu(highRam.fork());
+		that.nextNonIdleCycle = nextNonIdleCycle;
+		that.PC = PC;
+		that.SP = SP;
+		that.IME = IME;
+		that.IE = IE;
+		that.IF = IF;
+		System.arraycopy(regs, 0, that.regs, 0, NBR_REGS);
+		that.lazyFlags = lazyFlags;
+		that.lazyL = lazyL;
+		that.lazyR = lazyR;
+		that.lazyCarryIn = lazyCarryIn;
+		that.lazyKeepsC = lazyKeepsC;
+		that.lazyC = lazyC;
+		return that;
 	}
 
 	/**
@@ -164,18 +275,18 @@ public final class Cpu implements Component, Clocked {
 	 * @return The registers of the cpu (except IE and IF) as an array.
 	 */
 	public int[] _testGetPcSpAFBCDEHL() {
-		int[] test = new int[Reg.values().length + 2];
+		int[] test = new int[NBR_REGS + 2];
 
 		test[0] = PC;
 		test[1] = SP;
-		test[2] = reg.get(Reg.A);
-		test[3] = reg.get(Reg.F);
-		test[4] = reg.get(Reg.B);
-		test[5] = reg.get(Reg.C);
-		test[6] = reg.get(Reg.D);
-		test[7] = reg.get(Reg.E);
-		test[8] = reg.get(Reg.H);
-		test[9] = reg.get(Reg.L);
+		test[2] = regs[A];
+		test[3] = flags();
+		test[4] = regs[B];
+		test[5] = regs[C];
+		test[6] = regs[D];
+		test[7] = regs[E];
+		test[8] = regs[H];
+		test[9] = regs[L];
 
 		return test;
 	}
@@ -202,7 +313,7 @@ public final class Cpu implements Component, Clocked {
 		}
 	}
 
-	private void dispatch(Opcode opcode) {
+	private void dispatch(DecodedOpcode opcode) {
 		int nextPC = PC + opcode.totalBytes;
 		switch (opcode.family) {
 		case NOP: {
@@ -212,91 +323,91 @@ public final class Cpu implements Component, Clocked {
 		// Loads. Push and Pop.
 		case LD_R8_HLR: {
 			int value = read8AtHl();
-			reg.set(extractReg(opcode, 3), value);
+			regs[opcode.reg3] = value;
 		}
 		break;
 		case LD_A_HLRU: {
 			int value = read8AtHl();
-			int r = Bits.clip(16, (reg16(Reg16.HL) + extractHlIncrement(opcode)));
-			setReg16(Reg16.HL, r);
-			reg.set((Reg.A), value);
+			int r = Bits.clip(16, (reg16(HL) + opcode.hlIncrement));
+			setReg16(HL, r);
+			regs[A] = value;
 		}
 		break;
 		case LD_A_N8R: {
 			int value = read8(Bits.clip(16, AddressMap.REGS_START + read8AfterOpcode()));
-			reg.set((Reg.A), value);
+			regs[A] = value;
 		}
 		break;
 		case LD_A_CR: {
-			int value = read8(Bits.clip(16, AddressMap.REGS_START + reg.get(Reg.C)));
-			reg.set((Reg.A), value);
+			int value = read8(Bits.clip(16, AddressMap.REGS_START + regs[C]));
+			regs[A] = value;
 		}
 		break;
 		case LD_A_N16R: {
 			int value = read8(read16AfterOpcode());
-			reg.set((Reg.A), value);
+			regs[A] = value;
 		}
 		break;
 		case LD_A_BCR: {
-			int value = read8(reg16(Reg16.BC));
-			reg.set((Reg.A), value);
+			int value = read8(reg16(BC));
+			regs[A] = value;
 		}
 		break;
 		case LD_A_DER: {
-			int value = read8(reg16(Reg16.DE));
-			reg.set((Reg.A), value);
+			int value = read8(reg16(DE));
+			regs[A] = value;
 		}
 		break;
 		case LD_R8_N8: {
 			int value = read8AfterOpcode();
-			reg.set((extractReg(opcode, 3)), value);
+			regs[opcode.reg3] = value;
 		}
 		break;
 		case LD_R16SP_N16: {
 			int value = read16AfterOpcode();
-			setReg16SP(extractReg16(opcode), value);
+			setReg16SP(opcode.reg16, value);
 		}
 		break;
 		case POP_R16: {
 			int value = pop16();
-			setReg16(extractReg16(opcode), value);
+			setReg16(opcode.reg16, value);
 		}
 		break;
 		case LD_HLR_R8: {
-			int value = reg.get(extractReg(opcode, 0));
+			int value = regs[opcode.reg0];
 			write8AtHl(value);
 		}
 		break;
 		case LD_HLRU_A: {
-			int value = reg.get(Reg.A);
+			int value = regs[A];
 			write8AtHl(value);
-			int r = Bits.clip(16, (reg16(Reg16.HL) + extractHlIncrement(opcode)));
-			setReg16(Reg16.HL, r);
+			int r = Bits.clip(16, (reg16(HL) + opcode.hlIncrement));
+			setReg16(HL, r);
 		}
 		break;
 		case LD_N8R_A: {
-			int value = reg.get(Reg.A);
+			int value = regs[A];
 			write8(Bits.clip(16, AddressMap.REGS_START + read8AfterOpcode()), value);
 		}
 		break;
 		case LD_CR_A: {
-			int value = reg.get(Reg.A);
-			write8(Bits.clip(16, AddressMap.REGS_START + reg.get(Reg.C)), value);
+			int value = regs[A];
+			write8(Bits.clip(16, AddressMap.REGS_START + regs[C]), value);
 		}
 		break;
 		case LD_N16R_A: {
-			int value = reg.get(Reg.A);
+			int value = regs[A];
 			write8(read16AfterOpcode(), value);
 		}
 		break;
 		case LD_BCR_A: {
-			int value = reg.get(Reg.A);
-			write8(reg16(Reg16.BC), value);
+			int value = regs[A];
+			write8(reg16(BC), value);
 		}
 		break;
 		case LD_DER_A: {
-			int value = reg.get(Reg.A);
-			write8(reg16(Reg16.DE), value);
+			int value = regs[A];
+			write8(reg16(DE), value);
 		}
 		break;
 		case LD_HLR_N8: {
@@ -309,64 +420,56 @@ public final class Cpu implements Component, Clocked {
 		}
 		break;
 		case LD_R8_R8: {
-			int value = reg.get(extractReg(opcode, 0));
-			reg.set(extractReg(opcode, 3), value);
+			int value = regs[opcode.reg0];
+			regs[opcode.reg3] = value;
 		}
 		break;
 		case LD_SP_HL: {
-			SP = reg16(Reg16.HL);
+			SP = reg16(HL);
 		}
 		break;
 		case PUSH_R16: {
-			push16(reg16(extractReg16(opcode)));
+			push16(reg16(opcode.reg16));
 		}
 		break;
 
 		// Add and Increments
 		case ADD_A_R8: {
-			int valueFlags = Alu.add(reg.get(Reg.A), reg.get(extractReg(opcode, 0)), withCarry(opcode));
-			setRegFlags(Reg.A, valueFlags);
+			regs[A] = addLazily(regs[A], regs[opcode.reg0], withCarry(opcode), false);
 		}
 		break;
 		case ADD_A_N8: {
-			int valueFlags = Alu.add(reg.get(Reg.A), read8AfterOpcode(), withCarry(opcode));
-			setRegFlags(Reg.A, valueFlags);
-
+			regs[A] = addLazily(regs[A], read8AfterOpcode(), withCarry(opcode), false);
 		}
 		break;
 		case ADD_A_HLR: {
-			int valueFlags = Alu.add(reg.get(Reg.A), read8(reg16(Reg16.HL)), withCarry(opcode));
-			setRegFlags(Reg.A, valueFlags);
+			regs[A] = addLazily(regs[A], read8(reg16(HL)), withCarry(opcode), false);
 		}
 		break;
 		case INC_R8: {
-			Reg r8 = extractReg(opcode, 3);
-			int valueFlags = Alu.add(reg.get(r8), 1);
-			reg.set(r8, Alu.unpackValue(valueFlags));
-			combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.V0, FlagSrc.ALU, FlagSrc.CPU);
+			int r8 = opcode.reg3;
+			regs[r8] = addLazily(regs[r8], 1, false, true);
 		}
 		break;
 		case INC_HLR: {
-			int valueFlags = Alu.add(read8AtHl(), 1);
-			write8AtHl(Alu.unpackValue(valueFlags));
-			combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.V0, FlagSrc.ALU, FlagSrc.CPU);
+			write8AtHl(addLazily(read8AtHl(), 1, false, true));
 		}
 		break;
 		case INC_R16SP: {
-			Reg16 reg = extractReg16(opcode);
+			int reg = opcode.reg16;
 			int valueFlags = Alu.add16H(reg16SP(reg), 1);
 			setReg16SP(reg, Alu.unpackValue(valueFlags));
 		}
 		break;
 		case ADD_HL_R16SP: {
-			Reg16 reg = extractReg16(opcode);
-			int valueFlags = Alu.add16H(reg16(Reg16.HL), reg16SP(reg));
-			setReg16(Reg16.HL, Alu.unpackValue(valueFlags));
+			int reg = opcode.reg16;
+			int valueFlags = Alu.add16H(reg16(HL), reg16SP(reg));
+			setReg16(HL, Alu.unpackValue(valueFlags));
 			combineAluFlags(valueFlags, FlagSrc.CPU, FlagSrc.V0, FlagSrc.ALU, FlagSrc.ALU);
 		}
 		break;
 		case LD_HLSP_S8: {
-			Reg16 reg = Bits.test(opcode.encoding, 4) ? Reg16.HL : Reg16.AF;
+			int reg = opcode.reg16;
 			int signedValue = read8AfterOpcode();
 			int flags = Alu.add16L(SP, signedValue);
 			int endValue = Bits.clip(16, SP + Bits.signExtend8(signedValue));
@@ -378,83 +481,72 @@ public final class Cpu implements Component, Clocked {
 
 		// Sub. Decrements and Compare
 		case SUB_A_R8: {
-			int valueFlags = Alu.sub(reg.get(Reg.A), reg.get(extractReg(opcode, 0)), withCarry(opcode));
-			setRegFlags(Reg.A, valueFlags);
+			regs[A] = subLazily(regs[A], regs[opcode.reg0], withCarry(opcode), false);
 		}
 		break;
 		case SUB_A_N8: {
-			int valueFlags = Alu.sub(reg.get(Reg.A), read8AfterOpcode(), withCarry(opcode));
-			setRegFlags(Reg.A, valueFlags);
-
+			regs[A] = subLazily(regs[A], read8AfterOpcode(), withCarry(opcode), false);
 		}
 		break;
 		case SUB_A_HLR: {
-			int valueFlags = Alu.sub(reg.get(Reg.A), read8AtHl(), withCarry(opcode));
-			setRegFlags(Reg.A, valueFlags);
+			regs[A] = subLazily(regs[A], read8AtHl(), withCarry(opcode), false);
 		}
 		break;
 		case DEC_R8: {
-			Reg r8 = extractReg(opcode, 3);
-			int valueFlags = Alu.sub(reg.get(r8), 1);
-			reg.set(r8, Alu.unpackValue(valueFlags));
-			combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.V1, FlagSrc.ALU, FlagSrc.CPU);
+			int r8 = opcode.reg3;
+			regs[r8] = subLazily(regs[r8], 1, false, true);
 		}
 		break;
 		case DEC_HLR: {
-			int valueFlags = Alu.sub(read8AtHl(), 1);
-			write8AtHl(Alu.unpackValue(valueFlags));
-			combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.V1, FlagSrc.ALU, FlagSrc.CPU);
+			write8AtHl(subLazily(read8AtHl(), 1, false, true));
 		}
 		break;
 		case CP_A_R8: {
-			int valueFlags = Alu.sub(reg.get(Reg.A), reg.get(extractReg(opcode, 0)));
-			setFlags(valueFlags);
+			subLazily(regs[A], regs[opcode.reg0], false, false);
 		}
 		break;
 		case CP_A_N8: {
-			int valueFlags = Alu.sub(reg.get(Reg.A), read8AfterOpcode());
-			setFlags(valueFlags);
+			subLazily(regs[A], read8AfterOpcode(), false, false);
 		}
 		break;
 		case CP_A_HLR: {
-			int valueFlags = Alu.sub(reg.get(Reg.A), read8AtHl());
-			setFlags(valueFlags);
+			subLazily(regs[A], read8AtHl(), false, false);
 		}
 		break;
 		case DEC_R16SP: {
-			Reg16 reg = extractReg16(opcode);
-			int value = reg != Reg16.AF ? Bits.clip(16, reg16(reg) - 1) : Bits.clip(16, SP - 1);
+			int reg = opcode.reg16;
+			int value = reg != AF ? Bits.clip(16, reg16(reg) - 1) : Bits.clip(16, SP - 1);
 			setReg16SP(reg, value);
 		}
 		break;
 
 		// Bit test and set
 		case BIT_U3_R8: {
-			int valueFlags = Alu.testBit(reg.get(extractReg(opcode, 0)), getChangeOrTestIndex(opcode).index());
+			int valueFlags = Alu.testBit(regs[opcode.reg0], opcode.index);
 			combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.V0, FlagSrc.V1, FlagSrc.CPU);
 		}
 		break;
 		case BIT_U3_HLR: {
-			int valueFlags = Alu.testBit(read8AtHl(), getChangeOrTestIndex(opcode).index());
+			int valueFlags = Alu.testBit(read8AtHl(), opcode.index);
 			combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.V0, FlagSrc.V1, FlagSrc.CPU);
 		}
 		break;
 		case CHG_U3_R8: {
-			Reg r = extractReg(opcode, 0);
-			reg.setBit(r, getChangeOrTestIndex(opcode), isSet(opcode));
+			int r = opcode.reg0;
+			regs[r] = Bits.set(regs[r], opcode.index, opcode.set);
 		}
 		break;
 		case CHG_U3_HLR: {
 			int value = read8AtHl();
-			write8AtHl(Bits.set(value, getChangeOrTestIndex(opcode).index(), isSet(opcode)));
+			write8AtHl(Bits.set(value, opcode.index, opcode.set));
 		}
 		break;
 
 		// Misc. ALU
 		case DAA: {
-			int value = Alu.bcdAdjust(reg.get(Reg.A), reg.testBit(Reg.F, Flag.N), reg.testBit(Reg.F, Flag.H),
-					reg.testBit(Reg.F, Flag.C));
-			setRegFromAlu(Reg.A, value);
+			int f = flags();
+			int value = Alu.bcdAdjust(regs[A], Bits.test(f, Flag.N), Bits.test(f, Flag.H), Bits.test(f, Flag.C));
+			setRegFromAlu(A, value);
 			combineAluFlags(value, FlagSrc.ALU, FlagSrc.CPU, FlagSrc.V0, FlagSrc.ALU);
 		}
 		break;
@@ -469,96 +561,96 @@ public final class Cpu implements Component, Clocked {
 
 		// And, or, xor, complement
 		case AND_A_N8: {
-			int valueFlags = Alu.and(reg.get(Reg.A), read8AfterOpcode());
-			setRegFlags(Reg.A, valueFlags);
+			int valueFlags = Alu.and(regs[A], read8AfterOpcode());
+			setRegFlags(A, valueFlags);
 		}
 		break;
 		case AND_A_R8: {
-			int valueFlags = Alu.and(reg.get(Reg.A), reg.get(extractReg(opcode, 0)));
-			setRegFlags(Reg.A, valueFlags);
+			int valueFlags = Alu.and(regs[A], regs[opcode.reg0]);
+			setRegFlags(A, valueFlags);
 
 		}
 		break;
 		case AND_A_HLR: {
-			int valueFlags = Alu.and(reg.get(Reg.A), read8AtHl());
-			setRegFlags(Reg.A, valueFlags);
+			int valueFlags = Alu.and(regs[A], read8AtHl());
+			setRegFlags(A, valueFlags);
 		}
 		break;
 		case OR_A_R8: {
-			int valueFlags = Alu.or(reg.get(Reg.A), reg.get(extractReg(opcode, 0)));
-			setRegFlags(Reg.A, valueFlags);
+			int valueFlags = Alu.or(regs[A], regs[opcode.reg0]);
+			setRegFlags(A, valueFlags);
 		}
 		break;
 		case OR_A_N8: {
-			int valueFlags = Alu.or(reg.get(Reg.A), read8AfterOpcode());
-			setRegFlags(Reg.A, valueFlags);
+			int valueFlags = Alu.or(regs[A], read8AfterOpcode());
+			setRegFlags(A, valueFlags);
 		}
 		break;
 		case OR_A_HLR: {
-			int valueFlags = Alu.or(reg.get(Reg.A), read8AtHl());
-			setRegFlags(Reg.A, valueFlags);
+			int valueFlags = Alu.or(regs[A], read8AtHl());
+			setRegFlags(A, valueFlags);
 		}
 		break;
 		case XOR_A_R8: {
-			int valueFlags = Alu.xor(reg.get(Reg.A), reg.get(extractReg(opcode, 0)));
-			setRegFlags(Reg.A, valueFlags);
+			int valueFlags = Alu.xor(regs[A], regs[opcode.reg0]);
+			setRegFlags(A, valueFlags);
 		}
 		break;
 		case XOR_A_N8: {
-			int valueFlags = Alu.xor(reg.get(Reg.A), read8AfterOpcode());
-			setRegFlags(Reg.A, valueFlags);
+			int valueFlags = Alu.xor(regs[A], read8AfterOpcode());
+			setRegFlags(A, valueFlags);
 
 		}
 		break;
 		case XOR_A_HLR: {
-			int valueFlags = Alu.xor(reg.get(Reg.A), read8AtHl());
-			setRegFlags(Reg.A, valueFlags);
+			int valueFlags = Alu.xor(regs[A], read8AtHl());
+			setRegFlags(A, valueFlags);
 		}
 		break;
 		case CPL: {
-			reg.set(Reg.A, Bits.complement8(reg.get(Reg.A)));
+			regs[A] = Bits.complement8(regs[A]);
 			combineAluFlags(0, FlagSrc.CPU, FlagSrc.V1, FlagSrc.V1, FlagSrc.CPU);
 		}
 		break;
 
 		// Rotate, shift
 		case ROTCA: {
-			int valueFlags = Alu.rotate(extractRotDir(opcode), reg.get(Reg.A));
-			setRegFromAlu(Reg.A, valueFlags);
+			int valueFlags = Alu.rotate(opcode.rotDir, regs[A]);
+			setRegFromAlu(A, valueFlags);
 			combineAluFlags(valueFlags, FlagSrc.V0, FlagSrc.V0, FlagSrc.V0, FlagSrc.ALU);
 		}
 		break;
 		case ROTA: {
-			int valueFlags = Alu.rotate(extractRotDir(opcode), reg.get(Reg.A), getCarry());
-			setRegFromAlu(Reg.A, valueFlags);
+			int valueFlags = Alu.rotate(opcode.rotDir, regs[A], getCarry());
+			setRegFromAlu(A, valueFlags);
 			combineAluFlags(valueFlags, FlagSrc.V0, FlagSrc.V0, FlagSrc.V0, FlagSrc.ALU);
 		}
 		break;
 		case ROTC_R8: {
-			Reg r = extractReg(opcode, 0);
-			int valueFlags = Alu.rotate(extractRotDir(opcode), reg.get(r));
+			int r = opcode.reg0;
+			int valueFlags = Alu.rotate(opcode.rotDir, regs[r]);
 			setRegFlags(r, valueFlags);
 		}
 		break;
 		case ROT_R8: {
-			Reg r = extractReg(opcode, 0);
-			int valueFlags = Alu.rotate(extractRotDir(opcode), reg.get(r), getCarry());
+			int r = opcode.reg0;
+			int valueFlags = Alu.rotate(opcode.rotDir, regs[r], getCarry());
 			setRegFlags(r, valueFlags);
 		}
 		break;
 		case ROTC_HLR: {
-			int valueFlags = Alu.rotate(extractRotDir(opcode), read8AtHl());
+			int valueFlags = Alu.rotate(opcode.rotDir, read8AtHl());
 			write8AtHlAndSetFlags(valueFlags);
 		}
 		break;
 		case ROT_HLR: {
-			int valueFlags = Alu.rotate(extractRotDir(opcode), read8AtHl(), getCarry());
+			int valueFlags = Alu.rotate(opcode.rotDir, read8AtHl(), getCarry());
 			write8AtHlAndSetFlags(valueFlags);
 		}
 		break;
 		case SWAP_R8: {
-			Reg r = extractReg(opcode, 0);
-			int valueFlags = Alu.swap(reg.get(r));
+			int r = opcode.reg0;
+			int valueFlags = Alu.swap(regs[r]);
 			setRegFlags(r, valueFlags);
 		}
 		break;
@@ -569,20 +661,20 @@ public final class Cpu implements Component, Clocked {
 		}
 		break;
 		case SLA_R8: {
-			Reg r = extractReg(opcode, 0);
-			int valueFlags = Alu.shiftLeft(reg.get(r));
+			int r = opcode.reg0;
+			int valueFlags = Alu.shiftLeft(regs[r]);
 			setRegFlags(r, valueFlags);
 		}
 		break;
 		case SRA_R8: {
-			Reg r = extractReg(opcode, 0);
-			int valueFlags = Alu.shiftRightA(reg.get(r));
+			int r = opcode.reg0;
+			int valueFlags = Alu.shiftRightA(regs[r]);
 			setRegFlags(r, valueFlags);
 		}
 		break;
 		case SRL_R8: {
-			Reg r = extractReg(opcode, 0);
-			int valueFlags = Alu.shiftRightL(reg.get(r));
+			int r = opcode.reg0;
+			int valueFlags = Alu.shiftRightL(regs[r]);
 			setRegFlags(r, valueFlags);
 		}
 		break;
@@ -604,7 +696,7 @@ public final class Cpu implements Component, Clocked {
 
 		// Jumps
 		case JP_HL: {
-			nextPC = reg16(Reg16.HL);
+			nextPC = reg16(HL);
 		}
 		break;
 		case JP_N16: {
@@ -642,8 +734,7 @@ public final class Cpu implements Component, Clocked {
 		break;
 		case RST_U3: {
 			push16(nextPC);
-			int index = Bits.extract(opcode.encoding, 3, 3);
-			nextPC = AddressMap.RESETS[index];
+			nextPC = AddressMap.RESETS[opcode.index];
 		}
 		break;
 		case RET: {
@@ -658,7 +749,7 @@ public final class Cpu implements Component, Clocked {
 
 		// Interrupts
 		case EDI: {
-			IME = Bits.test(opcode.encoding, 3);
+			IME = opcode.bit3;
 		}
 		break;
 		case RETI: {
@@ -677,24 +768,28 @@ public final class Cpu implements Component, Clocked {
 		PC = nextPC;
 	}
 
-	private static Opcode[] buildOpcodeTable(Kind a) {
-		Opcode[] x = new Opcode[256];
+	private static DecodedOpcode[] buildOpcodeTable(Kind a) {
+		DecodedOpcode[] x = new DecodedOpcode[256];
 		for (Opcode o : Opcode.values()) {
 			if (o.kind.equals(a)) {
-				x[o.encoding] = o;
+				x[o.encoding] = new DecodedOpcode(o);
 			}
 		}
 		return x;
 	}
 
 	// Reads the 8 bits value form the specified address.
+	// The high ram is read directly, other addresses go through the bus which
+	// reads the memories directly.
 	private int read8(int address) {
+		if (AddressMap.HIGH_RAM_START <= address && address < AddressMap.HIGH_RAM_END)
+			return highRam.read(address - AddressMap.HIGH_RAM_START);
 		return Bits.clip(8, this.bus.read(address));
 	}
 
 	// Reads the value stored at the address contained in HL.
 	private int read8AtHl() {
-		return read8(Bits.make16(reg.get(Reg.H), reg.get(Reg.L)));
+		return read8(reg16(HL));
 	}
 
 	// Reads the byte that follows the opcode's encoding.s
@@ -727,7 +822,7 @@ public final class Cpu implements Component, Clocked {
 
 	// Writes the 8 bits value in argument to the address contained in HL.
 	private void write8AtHl(int v) {
-		write8(reg16(Reg16.HL), v);
+		write8(reg16(HL), v);
 	}
 
 	// Pushes a 16 bits value to the stackpile.
@@ -744,79 +839,81 @@ public final class Cpu implements Component, Clocked {
 	}
 
 	// Returns the value contained in the 16 bits register given in argument.
-	private int reg16(Reg16 r) {
-		return Bits.make16(reg.get(r.reg1), reg.get(r.reg2));
+	private int reg16(int r) {
+		if (r == AF)
+			flags();
+		return (regs[r] << Byte.SIZE) | regs[r + 1];
 	}
 
 	// Returns the value contained in 16 bits register given as argument.
 	// If the argument is AF method will return value of SP instead.
-	private int reg16SP(Reg16 r) {
-		return r != Reg16.AF ? reg16(r) : SP;
+	private int reg16SP(int r) {
+		return r != AF ? reg16(r) : SP;
 
 	}
 
 	// Sets the register in argument to the value given.
 	// If the register is AF the first 4 bits will be cleared.
-	private void setReg16(Reg16 r, int newV) {
+	private void setReg16(int r, int newV) {
 		int lsb = Bits.clip(8, newV);
 		int msb = Bits.extract(newV, 8, 8);
-		if (r == Reg16.AF) {
+		if (r == AF) {
 			int flagsMask = 0xF0;
-			reg.set(Reg.A, msb);
-			reg.set(Reg.F, lsb & flagsMask);
+			regs[A] = msb;
+			setF(lsb & flagsMask);
 		} else {
-			reg.set(r.reg1, msb);
-			reg.set(r.reg2, lsb);
+			regs[r] = msb;
+			regs[r + 1] = lsb;
 		}
 	}
 
 	// Sets the register in argument to the value given.
 	// If the register is AF will set SP instead.
-	private void setReg16SP(Reg16 r, int newV) {
+	private void setReg16SP(int r, int newV) {
 		Preconditions.checkBits16(newV);
-		if (r == Reg16.AF)
+		if (r == AF)
 			SP = newV;
 		else
 			setReg16(r, newV);
 	}
 
 	// Extracts 8 bits register contained in encoding of opcode.
-	private Reg extractReg(Opcode opcode, int startBit) {
+	private static int extractReg(Opcode opcode, int startBit) {
 		switch (Bits.extract(opcode.encoding, startBit, 3)) {
 		case 0b000:
-			return Reg.B;
+			return B;
 		case 0b001:
-			return Reg.C;
+			return C;
 		case 0b010:
-			return Reg.D;
+			return D;
 		case 0b011:
-			return Reg.E;
+			return E;
 		case 0b100:
-			return Reg.H;
+			return H;
 		case 0b101:
-			return Reg.L;
+			return L;
 		case 0b111:
-			return Reg.A;
+			return A;
 		default:
-			return null;
+			return NO_REG;
 		}
 	}
 
 	// Extracts 16 bits register contained in encoding of opcode.
-	private Reg16 extractReg16(Opcode opcode) {
+	private static int extractReg16(Opcode opcode) {
 		switch (Bits.extract(opcode.encoding, 4, 2)) {
 		case 0b00:
-			return Reg16.BC;
+			return BC;
 		case 0b01:
-			return Reg16.DE;
+			return DE;
 		case 0b10:
-			return Reg16.HL;
+			return HL;
 		default:
-			return Reg16.AF;
+			return AF;
 		}
 	}
 
-	private int extractHlIncrement(Opcode opcode) {
+	private static int extractHlIncrement(Opcode opcode) {
 		switch (Bits.extract(opcode.encoding, 4, 1)) {
 		case 0:
 			return 1;
@@ -828,20 +925,20 @@ public final class Cpu implements Component, Clocked {
 	}
 
 	// Sets r8 to the value contained in vf. It must be 8 bits and not 16 bits.
-	private void setRegFromAlu(Reg r, int vf) {
+	private void setRegFromAlu(int r, int vf) {
 		int value = Alu.unpackValue(vf);
-		reg.set(r, value);
+		regs[r] = value;
 	}
 
 	// Sets F to the flags of the argument.
 	private void setFlags(int valueFlags) {
 		int flags = Alu.unpackFlags(valueFlags);
-		reg.set(Reg.F, flags);
+		setF(flags);
 	}
 
 	// Set the 8 bit register in argument equal to the value of vf and sets the F to
 	// the flags of vf.
-	private void setRegFlags(Reg r, int vf) {
+	private void setRegFlags(int r, int vf) {
 		setRegFromAlu(r, vf);
 		setFlags(vf);
 	}
@@ -860,8 +957,8 @@ public final class Cpu implements Component, Clocked {
 		int v1 = testCombineAluFlags(z, n, h, c, FlagSrc.V1);
 		int alu = testCombineAluFlags(z, n, h, c, FlagSrc.ALU);
 		int cpu = testCombineAluFlags(z, n, h, c, FlagSrc.CPU);
-		int combined = v1 | (vf & alu) | (cpu & reg.get(Reg.F));
-		reg.set(Reg.F, Alu.unpackFlags(combined));
+		int combined = v1 | (vf & alu) | (cpu & flags());
+		setF(Alu.unpackFlags(combined));
 	}
 
 	private int testCombineAluFlags(FlagSrc z, FlagSrc n, FlagSrc h, FlagSrc c, FlagSrc a) {
@@ -870,52 +967,84 @@ public final class Cpu implements Component, Clocked {
 
 	// Method returns true if and only if addition/subtraction is with carry and the
 	// flag C is 1.
-	private boolean withCarry(Opcode o) {
-		return Bits.test(Bits.extract(o.encoding, 3, 1), 0) && getCarry();
-	}
-
-	// Method to obtain the direction of rotation from the encoding of the rotation
-	// opcodes.
-	private RotDir extractRotDir(Opcode opcode) {
-		return Bits.test(opcode.encoding, 3) ? RotDir.RIGHT : RotDir.LEFT;
+	private boolean withCarry(DecodedOpcode o) {
+		return o.bit3 && getCarry();
 	}
 
 	// Method to obtain value of the flag C in register F. True for 1 false for 0.
+	// The carry of a pending addition or subtraction is computed without
+	// evaluating the other flags.
 	private boolean getCarry() {
-		return reg.testBit(Reg.F, Alu.Flag.C);
+		switch (lazyFlags) {
+		case ADD:
+			return lazyKeepsC ? lazyC : lazyL + lazyR + lazyCarryIn > 0xFF;
+		case SUB:
+			return lazyKeepsC ? lazyC : lazyL < lazyR + lazyCarryIn;
+		default:
+			return Bits.test(regs[F], Alu.Flag.C);
+		}
 	}
 
 	// Method to obtain value of the flag Z in register F. True for 1 false for 0.
 	private boolean getZero() {
-		return reg.testBit(Reg.F, Alu.Flag.Z);
+		return Bits.test(flags(), Alu.Flag.Z);
 	}
 
-	// Returns true if opcode is a Set instruction, false if it is a reset
-	// instruction.
-	private boolean isSet(Opcode opcode) {
-		if (Bits.extract(opcode.encoding, 6, 1) == 1)
-			return true;
-		else
-			return false;
+	// Method to obtain the value of F, after having evaluated the pending flags.
+	private int flags() {
+		if (lazyFlags != LazyFlags.NONE) {
+			int l = lazyL, r = lazyR, carryIn = lazyCarryIn;
+			boolean sub = lazyFlags == LazyFlags.SUB;
+			int value = Bits.clip(8, sub ? l - r - carryIn : l + r + carryIn);
+			boolean h = sub ? Bits.clip(4, l) < Bits.clip(4, r) + carryIn
+					: Bits.clip(4, l) + Bits.clip(4, r) + carryIn > 0xF;
+			regs[F] = Alu.maskZNHC(value == 0, sub, h, getCarry());
+			lazyFlags = LazyFlags.NONE;
+		}
+		return regs[F];
 	}
 
-	// Returns index to set/reset or test for CHG and BIT instructions.
-	private OpcodeIndex getChangeOrTestIndex(Opcode opcode) {
-		return OpcodeIndex.index(Bits.extract(opcode.encoding, 3, 3));
+	// Method to set F, discarding the pending flags.
+	private void setF(int flags) {
+		regs[F] = flags;
+		lazyFlags = LazyFlags.NONE;
+	}
+
+	// Method to add two 8 bits values and the carry, whose flags are recorded to
+	// be evaluated lazily. If keepsC is true, the carry flag is left as it is.
+	private int addLazily(int l, int r, boolean carry, boolean keepsC) {
+		recordLazyFlags(LazyFlags.ADD, l, r, carry, keepsC);
+		return Bits.clip(8, l + r + lazyCarryIn);
+	}
+
+	// Method to subtract an 8 bits value and the borrow from another, whose
+	// flags are recorded to be evaluated lazily. If keepsC is true, the carry flag
+	// is left as it is.
+	private int subLazily(int l, int r, boolean borrow, boolean keepsC) {
+		recordLazyFlags(LazyFlags.SUB, l, r, borrow, keepsC);
+		return Bits.clip(8, l - r - lazyCarryIn);
+	}
+
+	// Method to record the operands of an operation whose flags are pending.
+	private void recordLazyFlags(LazyFlags operation, int l, int r, boolean carry, boolean keepsC) {
+		lazyC = keepsC && getCarry();
+		lazyKeepsC = keepsC;
+		lazyFlags = operation;
+		lazyL = l;
+		lazyR = r;
+		lazyCarryIn = carry ? 1 : 0;
 	}
 
 	// TODO needs to be improved.
-	private boolean manipulateC(Opcode o) {
-		boolean a = !Bits.test(o.encoding, 3) || (Bits.test(o.encoding, 3) && !getCarry());
+	private boolean manipulateC(DecodedOpcode o) {
+		boolean a = !o.bit3 || (o.bit3 && !getCarry());
 		return a;
 	}
 
-	// Extracts condition out of opcode and returns true or false depending on
-	// whether it is respected or not.
-	private boolean conditionRespected(Opcode opcode) {
-		if (!hasCondition(opcode))
-			return false;
-		switch (Bits.extract(opcode.encoding, 3, 2)) {
+	// Returns true or false depending on whether the condition of the opcode is
+	// respected or not, false if it has none.
+	private boolean conditionRespected(DecodedOpcode opcode) {
+		switch (opcode.condition) {
 		case 0b00:
 			return !getZero();
 		case 0b01:
@@ -930,7 +1059,7 @@ public final class Cpu implements Component, Clocked {
 	}
 
 	// Checks if the opcode in argument belongs to a family with a condition.
-	private boolean hasCondition(Opcode opcode) {
+	private static boolean hasCondition(Opcode opcode) {
 		return opcode.family == Opcode.Family.RET_CC
 				|| opcode.family == Opcode.Family.CALL_CC_N16
 				|| opcode.family == Opcode.Family.JR_CC_E8
@@ -949,16 +1078,12 @@ public final class Cpu implements Component, Clocked {
 
 	private void dispatchAndCycle() {
 		int a = read8(PC);
-		if (a == PREFIX_OPCODE) {
-			a = read8AfterOpcode();
-			dispatch(PREFIXED_OPCODE_TABLE[a]);
-			nextNonIdleCycle += PREFIXED_OPCODE_TABLE[a].cycles;
-		} else {
-			dispatch(DIRECT_OPCODE_TABLE[a]);
-			nextNonIdleCycle += DIRECT_OPCODE_TABLE[a].cycles;
-			if (hasCondition(DIRECT_OPCODE_TABLE[a]) && conditionRespected(DIRECT_OPCODE_TABLE[a]))
-				nextNonIdleCycle += DIRECT_OPCODE_TABLE[a].additionalCycles;
-		}
+		DecodedOpcode opcode = a == PREFIX_OPCODE ? PREFIXED_OPCODE_TABLE[read8AfterOpcode()]
+				: DIRECT_OPCODE_TABLE[a];
+		dispatch(opcode);
+		nextNonIdleCycle += opcode.cycles;
+		if (conditionRespected(opcode))
+			nextNonIdleCycle += opcode.additionalCycles;
 	}
 
 	private boolean wakeUpCpu() {
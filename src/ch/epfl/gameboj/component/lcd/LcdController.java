@@ -1,5 +1,6 @@
 package ch.epfl.gameboj.component.lcd;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -41,30 +42,66 @@ public final class LcdController implements Component, Clocked {
 	private static final int NBR_BGWIN_TILES_LINE = BACKGROUND_SIZE / TILE_SIZE;
 	private static final int MAX_DISPLAYED_WIN_TILES = LCD_WIDTH / TILE_SIZE;
 	private static final int BYTES_IN_TILE = 16;
-	private static final int SPRITES_IN_OAM = 40;
-	private static final int MAX_SPRITE_LINE = 10;
 	private static final long MODE0_DURATION = 51;
 	private static final long MODE2_DURATION = 20;
 	private static final long MODE3_DURATION = 43;
 	private static final long MODE1_STEP_DURATION = 114;
 	private static final int MODE_ENCODING_SIZE = 3;
+	private static final int FRAME_POOL_SIZE = 3;
+	private static final Reg[] LINE_REGS = { Reg.LCDC, Reg.SCY, Reg.SCX, Reg.BGP, Reg.OBP0, Reg.OBP1, Reg.WY,
+			Reg.WX };
 
 	private final Cpu cpu;
 	private final Ram videoRam;
+	private final TileCache tiles;
 	private final Ram OAM;
+	private final SpriteIndex sprites = new SpriteIndex();
 	private Bus bus;
 
 	private int copyCounter = Integer.MAX_VALUE;
-
-	private LcdImage image;
-	private LcdImage.Builder nextImageBuilder;
+	private long lastCycle = -1;
+
+	// The images are recycled: the one being drawn is the oldest of the pool, so
+	// that the one published before the current image stays intact for a whole
+	// frame. The images of the pool are only allocated when they are drawn, and
+	// the shared ones, which a forked controller can read, are replaced instead
+	// of being drawn into. The image being drawn is null if none was needed yet.
+	private final LcdImage[] frames = new LcdImage[FRAME_POOL_SIZE];
+	private final boolean[] sharedFrames = new boolean[FRAME_POOL_SIZE];
+	private int nextFrame;
+	private volatile LcdImage image;
+	private LcdImage nextImage;
+
+	// One frame out of frameInterval is drawn, none if it is 0. The frames which
+	// are not drawn are not published.
+	private int frameInterval = 1;
+	private long frameCount;
+	private boolean drawingFrame = true;
 
 	private int winY;
 	private long cycleOnWakeUp;
 	private long nextNonIdleCycle;
 
+	// The lines are only computed if the memories or the registers used to draw
+	// them changed since they were drawn in the current image, otherwise they are
+	// copied from it. The version of the memories is incremented each time the
+	// video ram or the OAM change, and is -1 for the lines which must be drawn.
+	private long memoryVersion;
+	private final long[] lineMemoryVersions = new long[LCD_HEIGHT];
+	private final long[] lineRegisters = new long[LCD_HEIGHT];
+	private final int[] lineWinY = new int[LCD_HEIGHT];
+
 	private final RegisterFile<Reg> reg = new RegisterFile<>(Reg.values());
 
+	// Buffers in which the lines are computed.
+	private final LcdLineBuffer bgLine = new LcdLineBuffer(BACKGROUND_SIZE);
+	private final LcdLineBuffer windowLine = new LcdLineBuffer(LCD_WIDTH);
+	private final LcdLineBuffer spriteLine = new LcdLineBuffer(LCD_WIDTH);
+	private final LcdLineBuffer bgSprites = new LcdLineBuffer(LCD_WIDTH);
+	private final LcdLineBuffer fgSprites = new LcdLineBuffer(LCD_WIDTH);
+	private final LcdLineBuffer line = new LcdLineBuffer(LCD_WIDTH);
+	private final int[] spritesToDraw = new int[SpriteIndex.MAX_SPRITES_LINE];
+
 	// Private enums for the registers and their bits.
 	private enum Reg implements Register {
 		LCDC, STAT, SCY, SCX, LY, LYC, DMA, BGP, OBP0, OBP1, WY, WX;
@@ -103,29 +140,52 @@ public final class LcdController implements Component, Clocked {
 	 *             if the argument cpu is null.
 	 */
 	public LcdController(Cpu cpu) {
+		this(cpu, new Ram(AddressMap.VIDEO_RAM_SIZE), new Ram(AddressMap.OAM_RAM_SIZE),
+				new LcdImage(LCD_HEIGHT, LCD_WIDTH), new LcdImage(LCD_HEIGHT, LCD_WIDTH), false);
+	}
+
+	// Private constructor of a controller using the given memories, whose current
+	// image and image being drawn are the given ones, shared with another
+	// controller or not.
+	private LcdController(Cpu cpu, Ram videoRam, Ram OAM, LcdImage image, LcdImage nextImage, boolean shared) {
 		Objects.requireNonNull(cpu);
 		this.cpu = cpu;
-		this.image = (new LcdImage.Builder(LCD_HEIGHT, LCD_WIDTH)).build();
-		this.nextImageBuilder = new LcdImage.Builder(LCD_HEIGHT, LCD_WIDTH);
-		this.videoRam = new Ram(AddressMap.VIDEO_RAM_SIZE);
-		this.OAM = new Ram(AddressMap.OAM_RAM_SIZE);
+		frames[0] = image;
+		frames[1] = nextImage;
+		sharedFrames[0] = shared;
+		sharedFrames[1] = shared && nextImage != null;
+		this.image = frames[0];
+		this.nextFrame = 1;
+		this.nextImage = frames[nextFrame];
+		this.videoRam = videoRam;
+		this.tiles = new TileCache(videoRam);
+		this.OAM = OAM;
+		indexSprites();
 		nextNonIdleCycle = Long.MAX_VALUE;
 		winY = 0;
+		Arrays.fill(lineMemoryVersions, -1);
 	}
 
 	@Override
 	public void attachTo(Bus bus) {
 		Objects.requireNonNull(bus);
 		this.bus = bus;
-		bus.attach(this);
+		bus.attach(this, AddressMap.VIDEO_RAM_START, AddressMap.VIDEO_RAM_END);
+		bus.attach(this, AddressMap.OAM_START, AddressMap.OAM_END);
+		bus.attach(this, AddressMap.REGS_LCDC_START, AddressMap.REGS_LCDC_END);
 	}
 
 	@Override
 	public void cycle(long cycle) {
-		if (copyCounter < 160) {
-			OAM.write(copyCounter, bus.read(Bits.make16(reg.get(Reg.DMA), copyCounter)));
+		// The DMA copies one byte per cycle. The bytes of the skipped cycles are
+		// copied now, which gives the same result since nothing could write to
+		// the bus during these cycles.
+		long copies = Math.min(cycle - lastCycle, AddressMap.OAM_RAM_SIZE);
+		for (long i = 0; i < copies && copyCounter < AddressMap.OAM_RAM_SIZE; ++i) {
+			writeOAM(copyCounter, bus.read(Bits.make16(reg.get(Reg.DMA), copyCounter)));
 			++copyCounter;
 		}
+		lastCycle = Math.max(lastCycle, cycle);
 		if (cycle == nextNonIdleCycle && isEnabled())
 			reallyCycle();
 		else if (nextNonIdleCycle == Long.MAX_VALUE && isEnabled()) {
@@ -137,6 +197,16 @@ public final class LcdController implements Component, Clocked {
 		}
 	}
 
+	@Override
+	public long nextNonIdleCycle(long cycle) {
+		if (!isEnabled())
+			return Long.MAX_VALUE;
+		else if (nextNonIdleCycle == Long.MAX_VALUE)
+			return cycle;
+		else
+			return nextNonIdleCycle >= cycle ? nextNonIdleCycle : Long.MAX_VALUE;
+	}
+
 	@Override
 	public int read(int address) {
 		Preconditions.checkBits16(address);
@@ -168,6 +238,7 @@ public final class LcdController implements Component, Clocked {
 					setMode(LcdMode.MODE0);
 					setLYLYC(0, Reg.LY);
 					nextNonIdleCycle = Long.MAX_VALUE;
+					Arrays.fill(lineMemoryVersions, -1);
 				}
 				break;
 			case LYC:
@@ -180,16 +251,23 @@ public final class LcdController implements Component, Clocked {
 			default:
 				reg.set(r, data);
 			}
-		} else if (address >= AddressMap.VIDEO_RAM_START && address < AddressMap.VIDEO_RAM_END)
-			videoRam.write(address - AddressMap.VIDEO_RAM_START, data);
-		else if (address >= AddressMap.OAM_START && address < AddressMap.OAM_END)
-			OAM.write(address - AddressMap.OAM_START, data);
+		} else if (address >= AddressMap.VIDEO_RAM_START && address < AddressMap.VIDEO_RAM_END) {
+			int index = address - AddressMap.VIDEO_RAM_START;
+			if (videoRam.read(index) != data) {
+				videoRam.write(index, data);
+				tiles.invalidate(index);
+				++memoryVersion;
+			}
+		} else if (address >= AddressMap.OAM_START && address < AddressMap.OAM_END)
+			writeOAM(address - AddressMap.OAM_START, data);
 
 	}
 
 	/**
 	 * Accessor which returns the current image being displayed by the
-	 * LcdController.
+	 * LcdController. The image is published once completely drawn, and is reused
+	 * to draw another frame one frame after it stops being the current image. It
+	 * should therefore not be kept longer.
 	 * 
 	 * @return The image being displayed by the LcdController.
 	 */
@@ -197,6 +275,97 @@ public final class LcdController implements Component, Clocked {
 		return image;
 	}
 
+	/**
+	 * Method to choose which frames are drawn: one frame out of the given number,
+	 * starting with the next one, or none if the number is 0. The frames which
+	 * are not drawn are not published, the current image staying the last one
+	 * drawn, but the modes, the interrupts and the registers evolve exactly as
+	 * when all the frames are drawn. The frame being drawn, if any, is completed.
+	 * 
+	 * @param frameInterval
+	 *            number of frames between two drawn frames, 1 to draw them all,
+	 *            which is the default, or 0 to draw none.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the number is negative.
+	 */
+	public void setFrameInterval(int frameInterval) {
+		Preconditions.checkArgument(frameInterval >= 0);
+		this.frameInterval = frameInterval;
+		frameCount = 0;
+	}
+
+	@Override
+	public int stateSize() {
+		return videoRam.size() + OAM.size() + Reg.values().length + 2 * Integer.BYTES + 3 * Long.BYTES;
+	}
+
+	@Override
+	public void saveState(ByteBuffer buffer) {
+		videoRam.saveState(buffer);
+		OAM.saveState(buffer);
+		for (Reg r : Reg.values())
+			buffer.put((byte) reg.get(r));
+		buffer.putInt(copyCounter).putLong(lastCycle).putInt(winY).putLong(cycleOnWakeUp).putLong(nextNonIdleCycle);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The images are not part of the state, since they are computed from the rest
+	 * of it. The frame being drawn when the state is restored is not published:
+	 * the current image stays the last one drawn before, until the next frame,
+	 * which is entirely redrawn, is completed.
+	 */
+	@Override
+	public void restoreState(ByteBuffer buffer) {
+		videoRam.restoreState(buffer);
+		tiles.invalidateAll();
+		Arrays.fill(lineMemoryVersions, -1);
+		OAM.restoreState(buffer);
+		indexSprites();
+		for (Reg r : Reg.values())
+			reg.set(r, Byte.toUnsignedInt(buffer.get()));
+		copyCounter = buffer.getInt();
+		lastCycle = buffer.getLong();
+		winY = buffer.getInt();
+		cycleOnWakeUp = buffer.getLong();
+		nextNonIdleCycle = buffer.getLong();
+		drawingFrame = false;
+	}
+
+	/**
+	 * Method to create an LcdController in the same state as this one, connected
+	 * to the given cpu, whose video ram and OAM are forked from those of this one
+	 * (see {@link Ram#fork()}). The images are also shared until either
+	 * controller draws into them, and the new controller decodes the tiles it
+	 * needs on its own. The new controller is not attached to any bus.
+	 * 
+	 * @param cpu
+	 *            The cpu with which the new LcdController will be connected.
+	 * 
+	 * @return The new LcdController.
+	 * 
+	 * @throws NullPointerException
+	 *             if the argument cpu is null.
+	 */
+	public LcdController fork(Cpu cpu) {
+		for (int i = 0; i < FRAME_POOL_SIZE; ++i)
+			sharedFrames[i] |= frames[i] != null && (frames[i] == image || frames[i] == nextImage);
+		LcdController that = new LcdController(cpu, videoRam.fork(), OAM.fork(), image, nextImage, true);
+		for (Reg r : Reg.values())
+			that.reg.set(r, reg.get(r));
+		that.copyCounter = copyCounter;
+		that.lastCycle = lastCycle;
+		that.winY = winY;
+		that.cycleOnWakeUp = cycleOnWakeUp;
+		that.nextNonIdleCycle = nextNonIdleCycle;
+		that.frameInterval = frameInterval;
+		that.frameCount = frameCount;
+		that.drawingFrame = drawingFrame;
+		return that;
+	}
+
 	// Method in charge of cycling the Lcdcontroller
 	private void reallyCycle() {
 		long cycleMode = nextNonIdleCycle - cycleOnWakeUp;
@@ -221,8 +390,16 @@ public final class LcdController implements Component, Clocked {
 		case MODE2: {
 			nextNonIdleCycle += MODE2_DURATION;
 			if (lineIndex == 0) {
-				image = nextImageBuilder.build();
-				nextImageBuilder = new LcdImage.Builder(LCD_HEIGHT, LCD_WIDTH);
+				if (drawingFrame) {
+					image = nextImage;
+					nextFrame = (nextFrame + 1) % FRAME_POOL_SIZE;
+					nextImage = frames[nextFrame];
+				}
+				drawingFrame = frameInterval != 0 && frameCount++ % frameInterval == 0;
+				if (drawingFrame) {
+					ownNextImage(false);
+					nextImage.clear();
+				}
 				winY = 0;
 			}
 			setMode(LcdMode.MODE2);
@@ -233,7 +410,8 @@ public final class LcdController implements Component, Clocked {
 		break;
 		case MODE3: {
 			nextNonIdleCycle += MODE3_DURATION;
-			nextImageBuilder.setLine(lineIndex, computeLine(lineIndex));
+			if (drawingFrame)
+				drawLine(lineIndex);
 			setMode(LcdMode.MODE3);
 		}
 		break;
@@ -283,14 +461,74 @@ public final class LcdController implements Component, Clocked {
 		return reg.testBit(Reg.LCDC, Reg.LCDCBits.LCD_STATUS);
 	}
 
+	// Method to draw a line of the next image, which is copied from the current
+	// image if nothing used to compute it changed since it was drawn there.
+	private void drawLine(int lineIndex) {
+		ownNextImage(true);
+		long registers = lineRegisters();
+		if (lineMemoryVersions[lineIndex] == memoryVersion && lineRegisters[lineIndex] == registers
+				&& lineWinY[lineIndex] == winY) {
+			nextImage.keepLine(lineIndex, image);
+			winY = isWindowDrawn(lineIndex) ? winY + 1 : winY;
+		} else {
+			lineMemoryVersions[lineIndex] = memoryVersion;
+			lineRegisters[lineIndex] = registers;
+			lineWinY[lineIndex] = winY;
+			nextImage.setLine(lineIndex, computeLine(lineIndex), image);
+		}
+	}
+
+	// Method to pack the registers used to compute a line in 64 bits.
+	private long lineRegisters() {
+		long registers = 0;
+		for (Reg r : LINE_REGS)
+			registers = registers << Byte.SIZE | reg.get(r);
+		return registers;
+	}
+
+	// Method to write in the OAM, the version of the memories being incremented
+	// if its contents change.
+	private void writeOAM(int index, int data) {
+		if (OAM.read(index) != data) {
+			OAM.write(index, data);
+			sprites.update(index, data);
+			++memoryVersion;
+		}
+	}
+
+	// Method to make sure that the image being drawn can be modified: it is
+	// allocated if it never was, or replaced if it is shared with a forked
+	// controller, by a copy if its contents must be kept.
+	private void ownNextImage(boolean keepContents) {
+		if (nextImage == null || sharedFrames[nextFrame]) {
+			nextImage = keepContents && nextImage != null ? new LcdImage(nextImage)
+					: new LcdImage(LCD_HEIGHT, LCD_WIDTH);
+			frames[nextFrame] = nextImage;
+			sharedFrames[nextFrame] = false;
+		}
+	}
+
+	// Method to index all the sprites of the OAM.
+	private void indexSprites() {
+		for (int i = 0; i < OAM.size(); ++i)
+			sprites.update(i, OAM.read(i));
+	}
+
+	// Method to test if the window is drawn on the given line.
+	private boolean isWindowDrawn(int lineIndex) {
+		int WX = Math.max(0, reg.get(Reg.WX) - WINX_OFFSET);
+		return reg.testBit(Reg.LCDC, Reg.LCDCBits.WIN) && WX < LCD_WIDTH && reg.get(Reg.WY) <= lineIndex;
+	}
+
 	// Private method to compute a line of pixels in the screen.
-	private LcdImageLine computeLine(int lineIndex) {
+	// The intermediate lines are computed in buffers allocated once.
+	private LcdLineBuffer computeLine(int lineIndex) {
 		Objects.checkIndex(lineIndex, LCD_HEIGHT);
 
-		LcdImageLine.Builder computedLine = new LcdImageLine.Builder(BACKGROUND_SIZE);
-		LcdImageLine.Builder windowLine = new LcdImageLine.Builder(LCD_WIDTH);
-		LcdImageLine bgSprites = new LcdImageLine.Builder(LCD_WIDTH).build();
-		LcdImageLine fgSprites = new LcdImageLine.Builder(LCD_WIDTH).build();
+		bgLine.clear();
+		windowLine.clear();
+		bgSprites.clear();
+		fgSprites.clear();
 
 		int backGroundTiles = AddressMap.BG_DISPLAY_DATA[reg.testBit(Reg.LCDC, Reg.LCDCBits.BG_AREA) ? 1 : 0];
 		int windowTiles = AddressMap.BG_DISPLAY_DATA[reg.testBit(Reg.LCDC, Reg.LCDCBits.WIN_AREA) ? 1 : 0];
@@ -303,8 +541,7 @@ public final class LcdController implements Component, Clocked {
 		int lineInWinTile = (winY % TILE_SIZE);
 
 		int WX = Math.max(0, reg.get(Reg.WX) - WINX_OFFSET);
-		int WY = reg.get(Reg.WY);
-		boolean drawWindow = reg.testBit(Reg.LCDC, Reg.LCDCBits.WIN) && 0 <= WX && WX < LCD_WIDTH && WY <= lineIndex;
+		boolean drawWindow = isWindowDrawn(lineIndex);
 		boolean drawSprites = reg.testBit(Reg.LCDC, Reg.LCDCBits.OBJ);
 		boolean drawBg = reg.testBit(Reg.LCDC, Reg.LCDCBits.BG);
 		boolean squareSprite = !reg.testBit(Reg.LCDC, Reg.LCDCBits.OBJ_SIZE);
@@ -312,7 +549,7 @@ public final class LcdController implements Component, Clocked {
 			if (drawBg) {
 				int tileBgIndex = correctIndex(read(backGroundTiles + tileNumberBg + i));
 				int byteAddress = getTileAddress(tileSource, tileBgIndex, lineInBgTile);
-				addBytesToLine(computedLine, i, byteAddress);
+				addBytesToLine(bgLine, i, byteAddress);
 			}
 			if (drawWindow && i < MAX_DISPLAYED_WIN_TILES) {
 				int tileWinIndex = correctIndex(read(windowTiles + tileNumberWin + i));
@@ -322,32 +559,28 @@ public final class LcdController implements Component, Clocked {
 
 		}
 		if (drawSprites) {
-			int[] spritesToDraw = spritesIntersectingLine(lineIndex);
-			for (int s : spritesToDraw) {
-				int index = Bits.clip(8, s);
+			int spriteCount = spritesIntersectingLine(lineIndex, spritesToDraw);
+			for (int s = 0; s < spriteCount; ++s) {
+				int index = Bits.clip(8, spritesToDraw[s]);
 				boolean bg = Bits.test(spriteElement(index, SpriteInfo.Features), SpriteInfo.FeaturesBits.BEHIND_BG);
+				spriteLine(spriteLine, index, lineIndex, squareSprite);
 				if (bg)
-					bgSprites = spriteLine(index, lineIndex, squareSprite).below(bgSprites);
+					bgSprites.above(spriteLine);
 				else
-					fgSprites = spriteLine(index, lineIndex, squareSprite).below(fgSprites);
+					fgSprites.above(spriteLine);
 			}
 		}
 		winY = drawWindow ? winY + 1 : winY;
-		LcdImageLine line = computedLine.build().extractWrapped(reg.get(Reg.SCX), LCD_WIDTH)
-				.mapColors(reg.get(Reg.BGP));
-		if (drawSprites)
-			line = bgSprites.below(line, bgSprites.getOpacity().not().or(line.getOpacity()));
-		if (drawWindow)
-			line = line.join(WX, windowLine.build().shift(WX)).mapColors(reg.get(Reg.BGP));
-		if (drawSprites)
-			line = line.below(fgSprites);
+		line.compose(bgLine, reg.get(Reg.SCX), reg.get(Reg.BGP), drawSprites ? bgSprites : null,
+				drawWindow ? windowLine : null, WX, drawSprites ? fgSprites : null);
 		return line;
 	}
 
-	// Method to add LSB and MSB from the specified address at the given index in
-	// the builder.
-	private void addBytesToLine(LcdImageLine.Builder builder, int indexInLine, int address) {
-		builder.setBytes(indexInLine, getImageByte(address + 1), getImageByte(address));
+	// Method to add LSB and MSB of the tile line at the specified address at the
+	// given index in the builder.
+	private void addBytesToLine(LcdLineBuffer builder, int indexInLine, int address) {
+		int msbLsb = tiles.line(address - AddressMap.VIDEO_RAM_START, false);
+		builder.setBytes(indexInLine, Bits.extract(msbLsb, 8, 8), Bits.clip(8, msbLsb));
 	}
 
 	// Private method to correct the index of a window or bg tile
@@ -357,8 +590,8 @@ public final class LcdController implements Component, Clocked {
 		return index;
 	}
 
-	// Method to compute an LcdImageLine with a single sprite.
-	private LcdImageLine spriteLine(int index, int lineIndex, boolean squareSprite) {
+	// Method to compute, in the given buffer, the line with a single sprite.
+	private void spriteLine(LcdLineBuffer buffer, int index, int lineIndex, boolean squareSprite) {
 
 		int spriteX = spriteElement(index, SpriteInfo.X) - SPRITEX_OFFSET;
 		int spriteY = spriteElement(index, SpriteInfo.Y) - SPRITEY_OFFSET;
@@ -366,54 +599,33 @@ public final class LcdController implements Component, Clocked {
 		int config = spriteElement(index, SpriteInfo.Features);
 		int lineInSprite = lineIndex - spriteY;
 
-		LcdImageLine.Builder builder = new LcdImageLine.Builder(LCD_WIDTH);
-		int[] lsbMsb = symmertricAndReverseContent(config, lineInSprite, indexInVRAM, squareSprite);
-		builder.setBytes(0, lsbMsb[1], lsbMsb[0]);
-		return builder.build().shift(spriteX)
-				.mapColors(Bits.test(config, SpriteInfo.FeaturesBits.PALETTE) ? reg.get(Reg.OBP1) : reg.get(Reg.OBP0));
+		int msbLsb = symmertricAndReverseContent(config, lineInSprite, indexInVRAM, squareSprite);
+		buffer.clear();
+		buffer.setBytes(0, Bits.extract(msbLsb, 8, 8), Bits.clip(8, msbLsb));
+		buffer.shift(spriteX);
+		buffer.mapColors(Bits.test(config, SpriteInfo.FeaturesBits.PALETTE) ? reg.get(Reg.OBP1) : reg.get(Reg.OBP0));
 	}
 
 	private int getTileAddress(int tileSource, int tileIndex, int lineInTile) {
 		return tileSource + tileIndex * BYTES_IN_TILE + 2 * lineInTile;
 	}
 
-	// Method to return the bytes stored and the given address after having reversed
-	// them.
-	private int getImageByte(int address) {
-		return Bits.reverse8(read(address));
-	}
-
-	// Method to return the msb and lsb of a sprite after having applied the correct
-	// modifications.
-	private int[] symmertricAndReverseContent(int config, int lineInSprite, int indexInVRAM, boolean squareSprite) {
+	// Method to return the msb and lsb of a sprite, packed in 16 bits with the msb
+	// first, after having applied the correct modifications.
+	private int symmertricAndReverseContent(int config, int lineInSprite, int indexInVRAM, boolean squareSprite) {
 		boolean flipHor = Bits.test(config, SpriteInfo.FeaturesBits.FLIP_H);
 		boolean flipVer = Bits.test(config, SpriteInfo.FeaturesBits.FLIP_V);
 		int size = squareSprite ? SPRITE_SQUARE_DIMENSIONS : SPRITE_RECT_HEIGHT;
 		int lineWithFlip = flipVer ? size - 1 - lineInSprite : lineInSprite;
 		int address = getTileAddress(AddressMap.TILE_SOURCE[1], indexInVRAM, lineWithFlip);
-		int msb = getImageByte(address + 1);
-		int lsb = getImageByte(address);
-		if (flipHor) {
-			msb = Bits.reverse8(msb);
-			lsb = Bits.reverse8(lsb);
-		}
-		return new int[] { lsb, msb };
+		return tiles.line(address - AddressMap.VIDEO_RAM_START, flipHor);
 	}
 
 	// Method to find the sprites intersecting a given line that should be
-	// displayed.
-	private int[] spritesIntersectingLine(int lineIndex) {
-		int[] firstArray = new int[MAX_SPRITE_LINE];
-		int intersectingSprites = 0;
-		int size = reg.testBit(Reg.LCDC, Reg.LCDCBits.OBJ_SIZE) ? SPRITE_RECT_HEIGHT : SPRITE_SQUARE_DIMENSIONS;
-		for (int i = 0; i < SPRITES_IN_OAM && intersectingSprites < MAX_SPRITE_LINE; ++i) {
-			int spriteY = spriteElement(i, SpriteInfo.Y) - SPRITEY_OFFSET;
-			int spriteX = spriteElement(i, SpriteInfo.X);
-			if (lineIndex >= spriteY && lineIndex < spriteY + size)
-				firstArray[intersectingSprites++] = Bits.make16(spriteX, i);
-		}
-		Arrays.sort(firstArray, 0, intersectingSprites);
-		return Arrays.copyOf(firstArray, intersectingSprites);
+	// displayed. They are stored, sorted, in the given array and their number is
+	// returned.
+	private int spritesIntersectingLine(int lineIndex, int[] firstArray) {
+		return sprites.spritesOnLine(lineIndex, reg.testBit(Reg.LCDC, Reg.LCDCBits.OBJ_SIZE), firstArray);
 	}
 
 	// Method to raise LCD_STAT if the bit in question of Reg.STAT is true.
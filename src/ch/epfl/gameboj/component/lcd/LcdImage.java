@@ -1,25 +1,44 @@
 package ch.epfl.gameboj.component.lcd;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.nio.BufferOverflowException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
 
 import ch.epfl.gameboj.Preconditions;
-import ch.epfl.gameboj.bits.BitVector;
 import ch.epfl.gameboj.bits.Bits;
 
 /**
  * Final class representing an image displayed by the LcdScreen.
  * 
+ * The msb, lsb and opacity of the lines are stored one after the other in
+ * arrays of blocks of 32 bits. The images of the LcdController are reused from
+ * one frame to another, which is why the package can write lines in an image.
+ * 
+ * Each image also records which of its lines may differ from those of the image
+ * displayed before it (see {@link #changedLines()}), so that the lines which
+ * did not change do not have to be converted or encoded again.
+ * 
  * @author Oscar Pitcho (288225)
  * @author Nizar Ghandri (283161)
  */
 public final class LcdImage {
 
+	/**
+	 * Number of colors of the pixels, and thus of entries of the palettes used to
+	 * convert images into ARGB pixels.
+	 */
+	public static final int NBR_COLORS = 4;
+
 	private final int height;
 	private final int width;
-	private final List<LcdImageLine> image;
+	private final int blocksPerLine;
+	private final int[] msb;
+	private final int[] lsb;
+	private final int[] opacity;
+	private final BitSet changedLines;
 
 	/**
 	 * Public constructor to build and LcdImage with given dimensions form a list of
@@ -48,7 +67,56 @@ public final class LcdImage {
 		}
 		this.height = height;
 		this.width = width;
-		this.image = Collections.unmodifiableList(new ArrayList<>(image));
+		this.blocksPerLine = width / Integer.SIZE;
+		this.msb = new int[height * blocksPerLine];
+		this.lsb = new int[height * blocksPerLine];
+		this.opacity = new int[height * blocksPerLine];
+		this.changedLines = new BitSet(height);
+		this.changedLines.set(0, height);
+		for (int y = 0; y < height; ++y)
+			setLine(y, image.get(y));
+	}
+
+	/**
+	 * Package-private constructor to build an LcdImage of given dimensions in which
+	 * all pixels are transparent and of color 0.
+	 * 
+	 * @param height
+	 *            of the image.
+	 * 
+	 * @param width
+	 *            of the image, a multiple of 32.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the height or the width are 0 or negative, or if the width is
+	 *             not a multiple of 32.
+	 */
+	LcdImage(int height, int width) {
+		Preconditions.checkArgument(height > 0 && width > 0 && width % Integer.SIZE == 0);
+		this.height = height;
+		this.width = width;
+		this.blocksPerLine = width / Integer.SIZE;
+		this.msb = new int[height * blocksPerLine];
+		this.lsb = new int[height * blocksPerLine];
+		this.opacity = new int[height * blocksPerLine];
+		this.changedLines = new BitSet(height);
+		this.changedLines.set(0, height);
+	}
+
+	/**
+	 * Package-private constructor to copy an image.
+	 * 
+	 * @param that
+	 *            image copied.
+	 */
+	LcdImage(LcdImage that) {
+		this.height = that.height;
+		this.width = that.width;
+		this.blocksPerLine = that.blocksPerLine;
+		this.msb = that.msb.clone();
+		this.lsb = that.lsb.clone();
+		this.opacity = that.opacity.clone();
+		this.changedLines = (BitSet) that.changedLines.clone();
 	}
 
 	/**
@@ -86,19 +154,182 @@ public final class LcdImage {
 	public int get(int x, int y) {
 		Objects.checkIndex(x, width);
 		Objects.checkIndex(y, height);
-		LcdImageLine line = image.get(y);
-		return (Bits.set(0, 0, line.getLsb().testBit(x)) | Bits.set(0, 1, line.getMsb().testBit(x)));
+		int block = y * blocksPerLine + x / Integer.SIZE;
+		int index = x % Integer.SIZE;
+		return (Bits.set(0, 0, Bits.test(lsb[block], index)) | Bits.set(0, 1, Bits.test(msb[block], index)));
+	}
+
+	/**
+	 * Method to know whether a line may differ from the same line of the image
+	 * displayed before this one. The lines of the images which are not drawn by
+	 * the LcdController are all considered as changed.
+	 * 
+	 * @param y
+	 *            index of the line.
+	 * 
+	 * @return false if the line is known to be identical to the previous one.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if the line is not contained in the image.
+	 */
+	public boolean isLineChanged(int y) {
+		return changedLines.get(Objects.checkIndex(y, height));
+	}
+
+	/**
+	 * Method to obtain the lines which may differ from those of the image
+	 * displayed before this one (see {@link #isLineChanged(int)}).
+	 * 
+	 * @return a new BitSet whose bit at the index of each changed line is set.
+	 */
+	public BitSet changedLines() {
+		return (BitSet) changedLines.clone();
+	}
+
+	/**
+	 * Method to write the ARGB values of all the pixels of the image in an array,
+	 * line by line, from the top left corner.
+	 * 
+	 * @param palette
+	 *            Array of the 4 ARGB values of the colors 0 to 3.
+	 * 
+	 * @param pixels
+	 *            Array in which the pixels are written.
+	 * 
+	 * @param offset
+	 *            Index in the array of the top left pixel.
+	 * 
+	 * @throws NullPointerException
+	 *             if the palette or the array is null.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the palette does not contain 4 colors.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if the pixels do not fit in the array at the given offset.
+	 */
+	public void toArgb(int[] palette, int[] pixels, int offset) {
+		Preconditions.checkArgument(palette.length == NBR_COLORS);
+		Objects.checkFromIndexSize(offset, width * height, pixels.length);
+		for (int block = 0; block < msb.length; ++block) {
+			int m = msb[block], l = lsb[block];
+			for (int i = 0; i < Integer.SIZE; ++i)
+				pixels[offset++] = palette[(((m >>> i) & 1) << 1) | ((l >>> i) & 1)];
+		}
+	}
+
+	/**
+	 * Method to write the ARGB values of all the pixels of the image in an
+	 * IntBuffer, line by line, from the top left corner and starting at the
+	 * position of the buffer, which is advanced accordingly.
+	 * 
+	 * @param palette
+	 *            Array of the 4 ARGB values of the colors 0 to 3.
+	 * 
+	 * @param pixels
+	 *            IntBuffer in which the pixels are written.
+	 * 
+	 * @throws NullPointerException
+	 *             if the palette or the buffer is null.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the palette does not contain 4 colors.
+	 * 
+	 * @throws BufferOverflowException
+	 *             if the buffer has not enough remaining space for the pixels.
+	 */
+	public void toArgb(int[] palette, IntBuffer pixels) {
+		Preconditions.checkArgument(palette.length == NBR_COLORS);
+		if (pixels.remaining() < width * height)
+			throw new BufferOverflowException();
+		for (int block = 0; block < msb.length; ++block) {
+			int m = msb[block], l = lsb[block];
+			for (int i = 0; i < Integer.SIZE; ++i)
+				pixels.put(palette[(((m >>> i) & 1) << 1) | ((l >>> i) & 1)]);
+		}
+	}
+
+	/**
+	 * Package-private method to replace a line of the image by the contents of a
+	 * LcdLineBuffer, the line being marked as changed if it differs from the same
+	 * line of the previous image.
+	 * 
+	 * @param index
+	 *            of the line which is set.
+	 * 
+	 * @param line
+	 *            LcdLineBuffer copied in the image.
+	 * 
+	 * @param previous
+	 *            image displayed before this one, of the same dimensions.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if index is not between 0 (included) and height (excluded).
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the size of the line is not equal to the width of the image.
+	 */
+	void setLine(int index, LcdLineBuffer line, LcdImage previous) {
+		Objects.checkIndex(index, height);
+		Preconditions.checkArgument(line.size() == width);
+		int from = index * blocksPerLine, to = from + blocksPerLine;
+		line.copyTo(msb, lsb, opacity, from);
+		changedLines.set(index, !Arrays.equals(msb, from, to, previous.msb, from, to)
+				|| !Arrays.equals(lsb, from, to, previous.lsb, from, to)
+				|| !Arrays.equals(opacity, from, to, previous.opacity, from, to));
+	}
+
+	/**
+	 * Package-private method to replace a line of the image by the same line of
+	 * the previous image, the line being thus marked as unchanged.
+	 * 
+	 * @param index
+	 *            of the line which is copied.
+	 * 
+	 * @param previous
+	 *            image displayed before this one, of the same dimensions.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if index is not between 0 (included) and height (excluded).
+	 */
+	void keepLine(int index, LcdImage previous) {
+		Objects.checkIndex(index, height);
+		int from = index * blocksPerLine;
+		System.arraycopy(previous.msb, from, msb, from, blocksPerLine);
+		System.arraycopy(previous.lsb, from, lsb, from, blocksPerLine);
+		System.arraycopy(previous.opacity, from, opacity, from, blocksPerLine);
+		changedLines.clear(index);
+	}
+
+	/**
+	 * Package-private method to make all the pixels of the image transparent and
+	 * of color 0, all the lines being marked as changed.
+	 */
+	void clear() {
+		Arrays.fill(msb, 0);
+		Arrays.fill(lsb, 0);
+		Arrays.fill(opacity, 0);
+		changedLines.set(0, height);
+	}
+
+	// Method to copy an LcdImageLine of the right size in the image.
+	private void setLine(int index, LcdImageLine line) {
+		line.getMsb().copyBlocks(msb, index * blocksPerLine);
+		line.getLsb().copyBlocks(lsb, index * blocksPerLine);
+		line.getOpacity().copyBlocks(opacity, index * blocksPerLine);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(image.hashCode(), width, height);
+		return Objects.hash(Arrays.hashCode(msb), Arrays.hashCode(lsb), Arrays.hashCode(opacity), width, height);
 	}
 
 	@Override
 	public boolean equals(Object that) {
 		return that instanceof LcdImage && this.width == ((LcdImage) that).width
-				&& this.height == ((LcdImage) that).height && this.image.equals(((LcdImage) that).image);
+				&& this.height == ((LcdImage) that).height && Arrays.equals(this.msb, ((LcdImage) that).msb)
+				&& Arrays.equals(this.lsb, ((LcdImage) that).lsb)
+				&& Arrays.equals(this.opacity, ((LcdImage) that).opacity);
 	}
 
 	/**
@@ -110,7 +341,7 @@ public final class LcdImage {
 	public static final class Builder {
 		private final int height;
 		private final int width;
-		private final List<LcdImageLine> image;
+		private final LcdImage image;
 
 		/**
 		 * Constructor to create a new builder for an image of given width and size.
@@ -128,9 +359,7 @@ public final class LcdImage {
 			Preconditions.checkArgument(height > 0 && width > 0);
 			this.height = height;
 			this.width = width;
-			image = new ArrayList<>();
-			image.addAll(Collections.nCopies(height, new LcdImageLine(new BitVector(width, false),
-					new BitVector(width, false), new BitVector(width, false))));
+			image = new LcdImage(height, width);
 		}
 
 		/**
@@ -157,7 +386,7 @@ public final class LcdImage {
 			Objects.requireNonNull(i);
 			Objects.checkIndex(index, height);
 			Preconditions.checkArgument(i.size() == width);
-			image.set(index, i);
+			image.setLine(index, i);
 			return this;
 		}
 
@@ -167,7 +396,7 @@ public final class LcdImage {
 		 * @return the new LcdImage built through the builder.
 		 */
 		public LcdImage build() {
-			return new LcdImage(height, width, image);
+			return new LcdImage(image);
 		}
 	}
 }
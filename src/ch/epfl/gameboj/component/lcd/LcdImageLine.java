@@ -1,6 +1,5 @@
 package ch.epfl.gameboj.component.lcd;
 
-import ch.epfl.gameboj.bits.Bits;
 import java.util.Objects;
 
 import ch.epfl.gameboj.Preconditions;
@@ -13,9 +12,6 @@ import ch.epfl.gameboj.bits.BitVector;
  * @author Nizar Ghandri
  */
 public final class LcdImageLine {
-	
-	private static final int ORIGINAL_PALETTE = 0b11100100;
-	private static final int NBR_COLORS = 4;
 
 	private final BitVector msb;
 	private final BitVector lsb;
@@ -156,8 +152,8 @@ public final class LcdImageLine {
 		Objects.requireNonNull(above);
 		Objects.requireNonNull(opacity);
 		Preconditions.checkArgument(this.size() == above.size() && this.size() == opacity.size());
-		BitVector newMsb = (opacity.and(above.msb)).or((opacity.not()).and(this.msb));
-		BitVector newLsb = (opacity.and(above.lsb)).or((opacity.not()).and(this.lsb));
+		BitVector newMsb = msb.blend(above.msb, opacity);
+		BitVector newLsb = lsb.blend(above.lsb, opacity);
 		return new LcdImageLine(newMsb, newLsb, (this.opacity.or(opacity)));
 	}
 
@@ -173,18 +169,14 @@ public final class LcdImageLine {
 	 */
 	public LcdImageLine mapColors(int colorPalette) {
 		Preconditions.checkBits8(colorPalette);
-		if (colorPalette == ORIGINAL_PALETTE)
+		if (colorPalette == PaletteMapper.IDENTITY)
 			return this;
-		BitVector newMsb = new BitVector(size());
-		BitVector newLsb = new BitVector(size());
-		for (int i = 0; i < NBR_COLORS; ++i) {
-			BitVector mask = (Bits.test(i, 0) ? lsb : lsb.not()).and(Bits.test(i, 1) ? msb : msb.not());
-			if (Bits.test(colorPalette, 2 * i))
-				newLsb = newLsb.or(mask);
-			if (Bits.test(colorPalette, 2 * i + 1))
-				newMsb = newMsb.or(mask);
-		}
-		return new LcdImageLine(newMsb, newLsb, opacity);
+		int[] newMsb = new int[size() / Integer.SIZE];
+		int[] newLsb = new int[size() / Integer.SIZE];
+		msb.copyBlocks(newMsb, 0);
+		lsb.copyBlocks(newLsb, 0);
+		PaletteMapper.map(colorPalette, newMsb, newLsb);
+		return new LcdImageLine(BitVector.ofBlocks(newMsb), BitVector.ofBlocks(newLsb), opacity);
 	}
 
 	/**
@@ -223,7 +215,7 @@ public final class LcdImageLine {
 	// Private method to make the equivalent of a join between BitVectors.
 	private BitVector cutAndGet(BitVector firstPart, BitVector secondPart, int index) {
 		BitVector mask = new BitVector(size(), true).shift(index);
-		return firstPart.and(mask.not()).or(secondPart.and(mask));
+		return firstPart.blend(secondPart, mask);
 	}
 
 	/**
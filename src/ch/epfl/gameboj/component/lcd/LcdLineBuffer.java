@@ -0,0 +1,345 @@
+package ch.epfl.gameboj.component.lcd;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import ch.epfl.gameboj.Preconditions;
+import ch.epfl.gameboj.bits.BitVector;
+
+/**
+ * Package-private final class which represents a mutable line of pixels, used
+ * by the LcdController to compute the lines of the screen without allocating
+ * any object. The msb, lsb and opacity of the pixels are stored in blocks of
+ * 32 bits as in a BitVector, and the operations are those of LcdImageLine,
+ * except that they modify the instance they are called on.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+final class LcdLineBuffer {
+
+	private final int[] msb;
+	private final int[] lsb;
+	private final int[] opacity;
+	private final int[] temp;
+
+	/**
+	 * Constructor to create a line of the given size, with all its pixels
+	 * transparent and of color 0.
+	 *
+	 * @param size
+	 *            of the line.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the size is not a multiple of 32 or is not strictly
+	 *             positive.
+	 */
+	LcdLineBuffer(int size) {
+		Preconditions.checkArgument(size % Integer.SIZE == 0 && size > 0);
+		msb = new int[size / Integer.SIZE];
+		lsb = new int[size / Integer.SIZE];
+		opacity = new int[size / Integer.SIZE];
+		temp = new int[size / Integer.SIZE];
+	}
+
+	/**
+	 * Accessor returning the number of pixels of the line.
+	 *
+	 * @return the size of the line.
+	 */
+	int size() {
+		return msb.length * Integer.SIZE;
+	}
+
+	/**
+	 * Method to make all the pixels of the line transparent and of color 0.
+	 */
+	void clear() {
+		Arrays.fill(msb, 0);
+		Arrays.fill(lsb, 0);
+		Arrays.fill(opacity, 0);
+	}
+
+	/**
+	 * Method to set the msb and lsb of the 8 pixels at the given byte index, as
+	 * LcdImageLine.Builder.setBytes does. These pixels are opaque if their color
+	 * is not 0.
+	 *
+	 * @param index
+	 *            of the byte which is set.
+	 *
+	 * @param msbByte
+	 *            8 bits value of the msb.
+	 *
+	 * @param lsbByte
+	 *            8 bits value of the lsb.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is not valid.
+	 */
+	void setBytes(int index, int msbByte, int lsbByte) {
+		Objects.checkIndex(index, msb.length * Integer.BYTES);
+		int block = index / Integer.BYTES;
+		int start = (index % Integer.BYTES) * Byte.SIZE;
+		int clearMask = ~(0xFF << start);
+		msb[block] = (msb[block] & clearMask) | (msbByte << start);
+		lsb[block] = (lsb[block] & clearMask) | (lsbByte << start);
+		opacity[block] = (opacity[block] & clearMask) | ((msbByte | lsbByte) << start);
+	}
+
+	/**
+	 * Method to replace the contents of the line by the wrapped extraction of
+	 * another, bigger or equal, line starting at the given index.
+	 *
+	 * @param that
+	 *            line from which the pixels are extracted.
+	 *
+	 * @param index
+	 *            at which the extraction starts.
+	 */
+	void extractWrapped(LcdLineBuffer that, int index) {
+		extract(that.msb, index, true, msb);
+		extract(that.lsb, index, true, lsb);
+		extract(that.opacity, index, true, opacity);
+	}
+
+	/**
+	 * Method to perform a logical shift of the line, as LcdImageLine.shift.
+	 *
+	 * @param distance
+	 *            of the shift, positive for left shifts and negative for right
+	 *            shifts.
+	 */
+	void shift(int distance) {
+		shift(msb, distance);
+		shift(lsb, distance);
+		shift(opacity, distance);
+	}
+
+	/**
+	 * Method to map the colors of the line, as LcdImageLine.mapColors.
+	 *
+	 * @param colorPalette
+	 *            8 bits palette.
+	 */
+	void mapColors(int colorPalette) {
+		PaletteMapper.map(colorPalette, msb, lsb);
+	}
+
+	/**
+	 * Method to compose the line with a line above it, using the opacity of the
+	 * latter, as LcdImageLine.below.
+	 *
+	 * @param above
+	 *            line of the same size placed above this one.
+	 */
+	void below(LcdLineBuffer above) {
+		for (int i = 0; i < msb.length; ++i) {
+			int op = above.opacity[i];
+			msb[i] = (op & above.msb[i]) | (~op & msb[i]);
+			lsb[i] = (op & above.lsb[i]) | (~op & lsb[i]);
+			opacity[i] |= op;
+		}
+	}
+
+	/**
+	 * Method to compose the line with a line below it, using the opacity of this
+	 * one, i.e. to replace this line by below.below(this).
+	 *
+	 * @param below
+	 *            line of the same size placed below this one.
+	 */
+	void above(LcdLineBuffer below) {
+		for (int i = 0; i < msb.length; ++i) {
+			int op = opacity[i];
+			msb[i] = (op & msb[i]) | (~op & below.msb[i]);
+			lsb[i] = (op & lsb[i]) | (~op & below.lsb[i]);
+			opacity[i] = op | below.opacity[i];
+		}
+	}
+
+	/**
+	 * Method to place the given line behind the opaque pixels of this one, i.e.
+	 * to replace this line by behind.below(this, behind.opacity.not().or(this.opacity)).
+	 *
+	 * @param behind
+	 *            line of the same size placed behind this one.
+	 */
+	void aboveOpaque(LcdLineBuffer behind) {
+		for (int i = 0; i < msb.length; ++i) {
+			int op = ~behind.opacity[i] | opacity[i];
+			msb[i] = (op & msb[i]) | (~op & behind.msb[i]);
+			lsb[i] = (op & lsb[i]) | (~op & behind.lsb[i]);
+			opacity[i] = behind.opacity[i] | op;
+		}
+	}
+
+	/**
+	 * Method to join the line with another one of the same size at the given
+	 * index, as LcdImageLine.join.
+	 *
+	 * @param index
+	 *            from which the pixels of that are used.
+	 *
+	 * @param that
+	 *            line providing the pixels from index on.
+	 */
+	void join(int index, LcdLineBuffer that) {
+		for (int i = 0; i < msb.length; ++i) {
+			int mask = joinMask(index, i);
+			msb[i] = (msb[i] & ~mask) | (that.msb[i] & mask);
+			lsb[i] = (lsb[i] & ~mask) | (that.lsb[i] & mask);
+			opacity[i] = (opacity[i] & ~mask) | (that.opacity[i] & mask);
+		}
+	}
+
+	/**
+	 * Method to replace the contents of the line by the composition of the layers
+	 * of a line of the screen, computed in one pass over the blocks. The result
+	 * is the one of the following operations, the absent layers being skipped:
+	 * extractWrapped(background, backgroundIndex), mapColors(palette),
+	 * aboveOpaque(behindSprites), join(windowIndex, window shifted by
+	 * windowIndex), mapColors(palette) and below(frontSprites).
+	 *
+	 * @param background
+	 *            line, bigger or equal, from which the pixels are extracted.
+	 *
+	 * @param backgroundIndex
+	 *            at which the extraction starts.
+	 *
+	 * @param palette
+	 *            8 bits palette of the background and the window.
+	 *
+	 * @param behindSprites
+	 *            line of the sprites behind the background, or null.
+	 *
+	 * @param window
+	 *            line of the window, or null.
+	 *
+	 * @param windowIndex
+	 *            index of the first pixel of the window.
+	 *
+	 * @param frontSprites
+	 *            line of the sprites in front of the background, or null.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the palette is not an 8 bits value.
+	 */
+	void compose(LcdLineBuffer background, int backgroundIndex, int palette, LcdLineBuffer behindSprites,
+			LcdLineBuffer window, int windowIndex, LcdLineBuffer frontSprites) {
+		Preconditions.checkBits8(palette);
+		int bgFirst = Math.floorDiv(backgroundIndex, Integer.SIZE);
+		int bgShift = Math.floorMod(backgroundIndex, Integer.SIZE);
+		int winFirst = Math.floorDiv(-windowIndex, Integer.SIZE);
+		int winShift = Math.floorMod(-windowIndex, Integer.SIZE);
+		for (int i = 0; i < msb.length; ++i) {
+			int m = extractBlock(background.msb, bgFirst + i, bgShift, true);
+			int l = extractBlock(background.lsb, bgFirst + i, bgShift, true);
+			int o = extractBlock(background.opacity, bgFirst + i, bgShift, true);
+			int mapped = PaletteMapper.mapMsb(palette, m, l);
+			l = PaletteMapper.mapLsb(palette, m, l);
+			m = mapped;
+
+			if (behindSprites != null) {
+				int op = ~behindSprites.opacity[i] | o;
+				m = (op & m) | (~op & behindSprites.msb[i]);
+				l = (op & l) | (~op & behindSprites.lsb[i]);
+				o = behindSprites.opacity[i] | op;
+			}
+			if (window != null) {
+				int mask = joinMask(windowIndex, i);
+				m = (m & ~mask) | (extractBlock(window.msb, winFirst + i, winShift, false) & mask);
+				l = (l & ~mask) | (extractBlock(window.lsb, winFirst + i, winShift, false) & mask);
+				o = (o & ~mask) | (extractBlock(window.opacity, winFirst + i, winShift, false) & mask);
+				mapped = PaletteMapper.mapMsb(palette, m, l);
+				l = PaletteMapper.mapLsb(palette, m, l);
+				m = mapped;
+			}
+			if (frontSprites != null) {
+				int op = frontSprites.opacity[i];
+				m = (op & frontSprites.msb[i]) | (~op & m);
+				l = (op & frontSprites.lsb[i]) | (~op & l);
+				o |= op;
+			}
+			msb[i] = m;
+			lsb[i] = l;
+			opacity[i] = o;
+		}
+	}
+
+	/**
+	 * Method to copy the msb, lsb and opacity blocks of the line in the given
+	 * arrays.
+	 *
+	 * @param msbBlocks
+	 *            array in which the msb are copied.
+	 *
+	 * @param lsbBlocks
+	 *            array in which the lsb are copied.
+	 *
+	 * @param opacityBlocks
+	 *            array in which the opacity is copied.
+	 *
+	 * @param offset
+	 *            index of the first block in the arrays.
+	 */
+	void copyTo(int[] msbBlocks, int[] lsbBlocks, int[] opacityBlocks, int offset) {
+		System.arraycopy(msb, 0, msbBlocks, offset, msb.length);
+		System.arraycopy(lsb, 0, lsbBlocks, offset, lsb.length);
+		System.arraycopy(opacity, 0, opacityBlocks, offset, opacity.length);
+	}
+
+	/**
+	 * Method to build an immutable LcdImageLine with the contents of the line.
+	 *
+	 * @return a new LcdImageLine equal to this line.
+	 */
+	LcdImageLine toLine() {
+		return new LcdImageLine(BitVector.ofBlocks(msb), BitVector.ofBlocks(lsb), BitVector.ofBlocks(opacity));
+	}
+
+	// Mask of the bits of the given block which are at or after index.
+	private static int joinMask(int index, int block) {
+		int start = index - block * Integer.SIZE;
+		if (start <= 0)
+			return -1;
+		else if (start >= Integer.SIZE)
+			return 0;
+		else
+			return -1 << start;
+	}
+
+	// Shifts the blocks in place, as BitVector.shift.
+	private void shift(int[] blocks, int distance) {
+		extract(blocks, -distance, false, temp);
+		System.arraycopy(temp, 0, blocks, 0, blocks.length);
+	}
+
+	// Writes in destination the extraction, wrapped or zero extended, of
+	// source starting at index, as BitVector.extractWrapped and
+	// extractZeroExtended.
+	private static void extract(int[] source, int index, boolean wrapped, int[] destination) {
+		int shiftSize = Math.floorMod(index, Integer.SIZE);
+		int firstBlock = Math.floorDiv(index, Integer.SIZE);
+		for (int i = 0; i < destination.length; ++i)
+			destination[i] = extractBlock(source, firstBlock + i, shiftSize, wrapped);
+	}
+
+	// Block of an extraction made of the high bits of the given block of the
+	// extension followed by the low bits of the next one.
+	private static int extractBlock(int[] source, int block, int shiftSize, boolean wrapped) {
+		int low = block(source, block, wrapped);
+		if (shiftSize == 0)
+			return low;
+		int high = block(source, block + 1, wrapped);
+		return (high << (Integer.SIZE - shiftSize)) | (low >>> shiftSize);
+	}
+
+	// Block of the infinite extension, wrapped or by zeroes, of the blocks.
+	private static int block(int[] blocks, int index, boolean wrapped) {
+		if (wrapped)
+			return blocks[Math.floorMod(index, blocks.length)];
+		else
+			return index < 0 || index >= blocks.length ? 0 : blocks[index];
+	}
+}
@@ -0,0 +1,102 @@
+package ch.epfl.gameboj.component.lcd;
+
+import ch.epfl.gameboj.Preconditions;
+
+/**
+ * Package-private final non instantiable class which maps the colors of 32
+ * pixels at once through a palette, as LcdImageLine.mapColors.
+ *
+ * Each bit of the mapped msb or lsb is a function of the msb and lsb of the
+ * pixel, given by 4 bits of the palette. These 4 bits of each plane are turned
+ * into masks of 32 bits, so that mapping a block only consists in selecting,
+ * for each pixel, the mask of its color. Nothing is allocated, and nothing is
+ * done for the identity palette.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+final class PaletteMapper {
+
+	/**
+	 * The palette which maps each color to itself.
+	 */
+	static final int IDENTITY = 0b11100100;
+
+	private PaletteMapper() {
+	}
+
+	/**
+	 * Method to map, in place, the colors of pixels through a palette.
+	 *
+	 * @param palette
+	 *            8 bits palette.
+	 *
+	 * @param msb
+	 *            blocks of the msb of the pixels.
+	 *
+	 * @param lsb
+	 *            blocks of the lsb of the pixels, as many as those of the msb.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the palette is not an 8 bits value.
+	 */
+	static void map(int palette, int[] msb, int[] lsb) {
+		Preconditions.checkBits8(palette);
+		if (palette == IDENTITY)
+			return;
+		for (int i = 0; i < msb.length; ++i) {
+			int newMsb = mapMsb(palette, msb[i], lsb[i]);
+			lsb[i] = mapLsb(palette, msb[i], lsb[i]);
+			msb[i] = newMsb;
+		}
+	}
+
+	/**
+	 * Method to obtain the msb of 32 pixels mapped through a palette, which must
+	 * be an 8 bits value.
+	 *
+	 * @param palette
+	 *            8 bits palette.
+	 *
+	 * @param msb
+	 *            block of the msb of the pixels.
+	 *
+	 * @param lsb
+	 *            block of the lsb of the pixels.
+	 *
+	 * @return the block of the mapped msb.
+	 */
+	static int mapMsb(int palette, int msb, int lsb) {
+		return select(palette >>> 1, msb, lsb);
+	}
+
+	/**
+	 * Method to obtain the lsb of 32 pixels mapped through a palette, which must
+	 * be an 8 bits value.
+	 *
+	 * @param palette
+	 *            8 bits palette.
+	 *
+	 * @param msb
+	 *            block of the msb of the pixels.
+	 *
+	 * @param lsb
+	 *            block of the lsb of the pixels.
+	 *
+	 * @return the block of the mapped lsb.
+	 */
+	static int mapLsb(int palette, int msb, int lsb) {
+		return select(palette, msb, lsb);
+	}
+
+	// Selects for each pixel the mask of its color, the bits of the plane being
+	// the bits 0, 2, 4 and 6 of the given palette, shifted to the right by one
+	// for the msb.
+	private static int select(int planeBits, int msb, int lsb) {
+		int c0 = -(planeBits & 1), c1 = -((planeBits >>> 2) & 1);
+		int c2 = -((planeBits >>> 4) & 1), c3 = -((planeBits >>> 6) & 1);
+		int msbClear = c0 ^ ((c0 ^ c1) & lsb);
+		int msbSet = c2 ^ ((c2 ^ c3) & lsb);
+		return msbClear ^ ((msbClear ^ msbSet) & msb);
+	}
+}
@@ -0,0 +1,122 @@
+package ch.epfl.gameboj.component.lcd;
+
+import java.util.Objects;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Preconditions;
+import ch.epfl.gameboj.bits.Bits;
+
+/**
+ * Package-private final class which indexes the sprites of the OAM by the lines
+ * of the screen they intersect, so that the LcdController does not read the 40
+ * entries of the OAM for each line it draws.
+ *
+ * For each line and each of the two heights of the sprites, the sprites
+ * intersecting the line are the bits of a long, in the order of the OAM. The
+ * index is updated with each byte written in the OAM, which only changes the
+ * lines covered by the sprite whose coordinate y is written.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+final class SpriteIndex {
+
+	/**
+	 * The maximal number of sprites drawn on a line.
+	 */
+	static final int MAX_SPRITES_LINE = 10;
+
+	private static final int BYTES_IN_SPRITE = 4;
+	private static final int SPRITES = AddressMap.OAM_RAM_SIZE / BYTES_IN_SPRITE;
+	private static final int Y_BYTE = 0;
+	private static final int X_BYTE = 1;
+	private static final int Y_OFFSET = 16;
+	private static final int SHORT_HEIGHT = 8;
+	private static final int TALL_HEIGHT = 16;
+
+	private final int[] y = new int[SPRITES];
+	private final int[] x = new int[SPRITES];
+	private final long[] shortLines = new long[LcdController.LCD_HEIGHT];
+	private final long[] tallLines = new long[LcdController.LCD_HEIGHT];
+
+	/**
+	 * Method to update the index after a byte was written in the OAM.
+	 *
+	 * @param index
+	 *            of the byte in the OAM.
+	 *
+	 * @param data
+	 *            the new value of the byte.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is not in the OAM.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the data is not an 8 bits value.
+	 */
+	void update(int index, int data) {
+		Objects.checkIndex(index, AddressMap.OAM_RAM_SIZE);
+		Preconditions.checkBits8(data);
+		int sprite = index / BYTES_IN_SPRITE;
+		switch (index % BYTES_IN_SPRITE) {
+		case Y_BYTE:
+			mark(sprite, false);
+			y[sprite] = data;
+			mark(sprite, true);
+			break;
+		case X_BYTE:
+			x[sprite] = data;
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Method to find the sprites drawn on a line: the first ten of the OAM which
+	 * intersect it. They are stored in the given array, as their coordinate x
+	 * followed by their index in 16 bits, sorted in increasing order, and their
+	 * number is returned.
+	 *
+	 * @param lineIndex
+	 *            index of the line.
+	 *
+	 * @param tall
+	 *            true if the sprites are 16 pixels high, false if they are 8.
+	 *
+	 * @param destination
+	 *            array of at least MAX_SPRITES_LINE elements.
+	 *
+	 * @return the number of sprites drawn on the line.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             if the line is not on the screen.
+	 */
+	int spritesOnLine(int lineIndex, boolean tall, int[] destination) {
+		Objects.checkIndex(lineIndex, LcdController.LCD_HEIGHT);
+		long sprites = (tall ? tallLines : shortLines)[lineIndex];
+		int count = 0;
+		while (sprites != 0 && count < MAX_SPRITES_LINE) {
+			int sprite = Long.numberOfTrailingZeros(sprites);
+			sprites &= sprites - 1;
+			int key = Bits.make16(x[sprite], sprite);
+			int i = count++;
+			for (; i > 0 && destination[i - 1] > key; --i)
+				destination[i] = destination[i - 1];
+			destination[i] = key;
+		}
+		return count;
+	}
+
+	// Sets or clears the bit of the sprite in the lines it covers.
+	private void mark(int sprite, boolean set) {
+		long bit = 1L << sprite;
+		int top = y[sprite] - Y_OFFSET;
+		int end = Math.min(top + TALL_HEIGHT, LcdController.LCD_HEIGHT);
+		for (int line = Math.max(top, 0); line < end; ++line) {
+			tallLines[line] = set ? tallLines[line] | bit : tallLines[line] & ~bit;
+			if (line < top + SHORT_HEIGHT)
+				shortLines[line] = set ? shortLines[line] | bit : shortLines[line] & ~bit;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package ch.epfl.gameboj.component.lcd;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import ch.epfl.gameboj.bits.Bits;
+import ch.epfl.gameboj.component.memory.Ram;
+
+/**
+ * Package-private final class which keeps the lines of the tiles of the video
+ * ram decoded, so that the LcdController does not read and reverse their bytes
+ * each time it draws them. A tile is decoded the first time one of its lines is
+ * needed after it was modified, which rarely happens during a frame.
+ *
+ * The lines are packed in 16 bits, the msb first, with their bits reversed so
+ * that the leftmost pixel is the bit 0, as expected by LcdLineBuffer, or not
+ * reversed for the horizontally flipped tiles.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+final class TileCache {
+
+	private static final int BYTES_IN_TILE = 16;
+	private static final int LINES_IN_TILE = 8;
+	private static final int TILES = 384;
+
+	private final Ram videoRam;
+	// The lines are only allocated when the first tile is decoded, so that a
+	// controller which does not draw does not allocate them.
+	private int[] lines;
+	private int[] flippedLines;
+	private final boolean[] decoded = new boolean[TILES];
+
+	/**
+	 * Constructor to create a cache of the tiles of the given video ram, none of
+	 * which is decoded.
+	 *
+	 * @param videoRam
+	 *            whose tiles are decoded.
+	 *
+	 * @throws NullPointerException
+	 *             if the video ram is null.
+	 */
+	TileCache(Ram videoRam) {
+		this.videoRam = Objects.requireNonNull(videoRam);
+	}
+
+	/**
+	 * Method to obtain the line of a tile starting at the given index of the
+	 * video ram.
+	 *
+	 * @param index
+	 *            in the video ram of the lsb of the line.
+	 *
+	 * @param flipped
+	 *            true if the line is flipped horizontally.
+	 *
+	 * @return the msb and lsb of the line, packed in 16 bits.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is not that of a line of a tile.
+	 */
+	int line(int index, boolean flipped) {
+		int line = Objects.checkIndex(index, TILES * BYTES_IN_TILE) >>> 1;
+		int tile = line / LINES_IN_TILE;
+		if (!decoded[tile])
+			decode(tile);
+		return flipped ? flippedLines[line] : lines[line];
+	}
+
+	/**
+	 * Method to signal that the byte at the given index of the video ram was
+	 * modified. Nothing is done if it is not part of a tile.
+	 *
+	 * @param index
+	 *            in the video ram of the modified byte.
+	 */
+	void invalidate(int index) {
+		if (index >= 0 && index < TILES * BYTES_IN_TILE)
+			decoded[index / BYTES_IN_TILE] = false;
+	}
+
+	/**
+	 * Method to signal that the whole video ram may have been modified.
+	 */
+	void invalidateAll() {
+		Arrays.fill(decoded, false);
+	}
+
+	// Decodes all the lines of the given tile.
+	private void decode(int tile) {
+		if (lines == null) {
+			lines = new int[TILES * LINES_IN_TILE];
+			flippedLines = new int[TILES * LINES_IN_TILE];
+		}
+		for (int i = 0; i < LINES_IN_TILE; ++i) {
+			int line = tile * LINES_IN_TILE + i;
+			int lsb = videoRam.read(2 * line);
+			int msb = videoRam.read(2 * line + 1);
+			flippedLines[line] = Bits.make16(msb, lsb);
+			lines[line] = Bits.make16(Bits.reverse8(msb), Bits.reverse8(lsb));
+		}
+		decoded[tile] = true;
+	}
+}
@@ -1,9 +1,11 @@
 
 package ch.epfl.gameboj.component.memory;
 
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.cartridge.Cartridge;
@@ -38,6 +40,21 @@ public final class BootRomController implements Component {
 		booting = true;
 	}
 
+	@Override
+	public void attachTo(Bus bus) {
+		bus.attach(this, AddressMap.CARTRIDGE_ROM_START, AddressMap.CARTRIDGE_ROM_END);
+		bus.attach(this, AddressMap.CARTRIDGE_RAM_START, AddressMap.CARTRIDGE_RAM_END);
+		bus.attach(this, AddressMap.REG_BOOT_ROM_DISABLE, AddressMap.REG_BOOT_ROM_DISABLE + 1);
+	}
+
+	@Override
+	public void mapPage(Bus bus, int pageAddress) {
+		if (pageAddress >= AddressMap.BOOT_ROM_START && pageAddress < AddressMap.BOOT_ROM_END && booting)
+			bootRom.mapPage(bus, pageAddress, pageAddress - AddressMap.BOOT_ROM_START);
+		else
+			cartridge.mapPage(bus, pageAddress);
+	}
+
 	@Override
 	public int read(int address) {
 		Preconditions.checkBits16(address);
@@ -59,4 +76,33 @@ public final class BootRomController implements Component {
 
 	}
 
+	/**
+	 * Method to create a bootRomController in the same state as this one, linked
+	 * to a fork of its cartridge (see {@link Cartridge#fork()}).
+	 * 
+	 * @return The new bootRomController.
+	 */
+	public BootRomController fork() {
+		BootRomController that = new BootRomController(cartridge.fork());
+		that.booting = booting;
+		return that;
+	}
+
+	@Override
+	public int stateSize() {
+		return 1 + cartridge.stateSize();
+	}
+
+	@Override
+	public void saveState(ByteBuffer buffer) {
+		buffer.put((byte) (booting ? 1 : 0));
+		cartridge.saveState(buffer);
+	}
+
+	@Override
+	public void restoreState(ByteBuffer buffer) {
+		booting = buffer.get() != 0;
+		cartridge.restoreState(buffer);
+	}
+
 }
@@ -2,21 +2,61 @@
 package ch.epfl.gameboj.component.memory;
 
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 
 /**
  * Final class that simulates the Ram component. In charge of providing a Random
  * access and reusable storage (possible to rewrite contents).
  * 
+ * The contents are stored in pages of 256 bytes which are copied on write: a
+ * ram shares its pages with the rams forked from it (see {@link #fork()}) until
+ * one of them writes into a page, and all the pages of a new ram share a single
+ * page of zeros. A ram therefore only allocates the pages which have been
+ * written since its creation or its last fork.
+ * 
  * @author Oscar Pitcho (288225)
  * @author Nizar Ghandri (283161)
  */
 public final class Ram {
-	private final byte[] ram;
+	private static final int PAGE_BITS = 8;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private static final byte[] ZERO_PAGE = new byte[PAGE_SIZE];
+
+	private final int size;
+	private final byte[][] pages;
+	// true for the pages which can be read by another ram, and must be copied
+	// before being written.
+	private final boolean[] shared;
+	// Buses on which pages were mapped, which must forget a page when it is
+	// copied.
+	private final ArrayList<Bus> buses = new ArrayList<>();
 
 	public Ram(int size) {
 		Preconditions.checkArgument(size >= 0);
-		ram = new byte[size];
+		this.size = size;
+		int nbrPages = (size + PAGE_MASK) >>> PAGE_BITS;
+		pages = new byte[nbrPages][];
+		shared = new boolean[nbrPages];
+		for (int p = 0; p < nbrPages; ++p) {
+			int pageSize = Math.min(PAGE_SIZE, size - (p << PAGE_BITS));
+			pages[p] = pageSize == PAGE_SIZE ? ZERO_PAGE : new byte[pageSize];
+			shared[p] = pageSize == PAGE_SIZE;
+		}
+	}
+
+	// Private constructor of the rams forked from another one.
+	private Ram(int size, byte[][] pages) {
+		this.size = size;
+		this.pages = pages;
+		this.shared = new boolean[pages.length];
+		Arrays.fill(shared, true);
 	}
 
 	/**
@@ -25,7 +65,7 @@ public final class Ram {
 	 * @return Size of the ram.
 	 */
 	public int size() {
-		return ram.length;
+		return size;
 	}
 
 	/**
@@ -44,7 +84,7 @@ public final class Ram {
 	 */
 
 	public int read(int index) {
-		return Byte.toUnsignedInt(ram[index]);
+		return Byte.toUnsignedInt(pages[index >>> PAGE_BITS][index & PAGE_MASK]);
 	}
 
 	/**
@@ -66,7 +106,87 @@ public final class Ram {
 
 	public void write(int index, int value) {
 		Preconditions.checkBits8(value);
-		ram[index] = (byte) value;
+		int p = index >>> PAGE_BITS;
+		byte[] page = shared[p] ? copyPage(p) : pages[p];
+		page[index & PAGE_MASK] = (byte) value;
+	}
+
+	/**
+	 * Creates a ram with the same contents, which shares the pages of this one
+	 * until either of them writes into them.
+	 * 
+	 * @return The new ram.
+	 */
+	public Ram fork() {
+		Arrays.fill(shared, true);
+		return new Ram(size, pages.clone());
+	}
+
+	/**
+	 * Lets the bus read the page starting at pageAddress directly from the ram.
+	 * The page is not mapped if index is not a multiple of 256, in which case the
+	 * bus reads it through the owner of the page.
+	 * 
+	 * @param bus
+	 *            Bus on which the page is mapped.
+	 * 
+	 * @param pageAddress
+	 *            First address of the page.
+	 * 
+	 * @param index
+	 *            Index in the ram of the contents of pageAddress.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if the ram does not contain the whole page.
+	 */
+	public void mapPage(Bus bus, int pageAddress, int index) {
+		Objects.checkFromIndexSize(index, PAGE_SIZE, size);
+		if ((index & PAGE_MASK) != 0)
+			return;
+		if (!buses.contains(bus))
+			buses.add(bus);
+		bus.mapPage(pageAddress, pages[index >>> PAGE_BITS], 0, true);
+	}
+
+	/**
+	 * Writes the contents of the ram at the position of the buffer, which is
+	 * advanced by the size of the ram.
+	 * 
+	 * @param buffer
+	 *            Buffer in which the contents are written.
+	 * 
+	 * @throws java.nio.BufferOverflowException
+	 *             if the buffer does not have enough remaining bytes.
+	 */
+	public void saveState(ByteBuffer buffer) {
+		for (byte[] page : pages)
+			buffer.put(page);
+	}
+
+	/**
+	 * Replaces the contents of the ram by the bytes at the position of the buffer,
+	 * which is advanced by the size of the ram.
+	 * 
+	 * @param buffer
+	 *            Buffer from which the contents are read.
+	 * 
+	 * @throws java.nio.BufferUnderflowException
+	 *             if the buffer does not have enough remaining bytes.
+	 */
+	public void restoreState(ByteBuffer buffer) {
+		for (int p = 0; p < pages.length; ++p)
+			buffer.get(shared[p] ? copyPage(p) : pages[p]);
+	}
+
+	// Replaces the given shared page by a copy which belongs to the ram only, and
+	// returns it.
+	private byte[] copyPage(int p) {
+		byte[] page = pages[p];
+		pages[p] = page.clone();
+		shared[p] = false;
+		for (Bus bus : buses)
+			bus.unmapData(page);
+		return pages[p];
 	}
 
 }
\ No newline at end of file
@@ -2,6 +2,8 @@
 package ch.epfl.gameboj.component.memory;
 
 import java.util.Objects;
+
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.component.Component;
 
@@ -14,6 +16,8 @@ import ch.epfl.gameboj.component.Component;
  */
 public final class RamController implements Component {
 
+	private static final int PAGE_SIZE = 0x100;
+
 	private final Ram ram;
 	private final int startAddress;
 	private final int endAddress;
@@ -62,6 +66,17 @@ public final class RamController implements Component {
 		this(ram, startAddress, startAddress + ram.size());
 	}
 
+	@Override
+	public void attachTo(Bus bus) {
+		bus.attach(this, startAddress, endAddress);
+	}
+
+	@Override
+	public void mapPage(Bus bus, int pageAddress) {
+		if (pageAddress >= startAddress && pageAddress + PAGE_SIZE <= endAddress)
+			ram.mapPage(bus, pageAddress, pageAddress - startAddress);
+	}
+
 	@Override
 	public int read(int address) {
 		Preconditions.checkBits16(address);
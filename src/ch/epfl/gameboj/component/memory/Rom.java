@@ -1,19 +1,27 @@
 
 package ch.epfl.gameboj.component.memory;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Objects;
 
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 
 /**
  * Class that simulates the Rom (storage).
  * 
+ * The contents are read from a buffer, which is either a private copy of an
+ * array or a buffer given to {@link #ofBuffer(ByteBuffer)}, e.g. a file mapped
+ * in memory, which can then be shared by several roms without being copied.
+ * 
  * @author Oscar Pitcho (288225)
  * @author Nizar Ghandri (283161)
  */
 public final class Rom {
-	private final byte[] rom;
+	private static final int PAGE_SIZE = 0x100;
+
+	private final ByteBuffer rom;
 
 	/**
 	 * Constructor instantiates rom with array passed in argument.
@@ -25,7 +33,30 @@ public final class Rom {
 	 *             if data is null.
 	 */
 	public Rom(byte[] data) {
-		rom = Arrays.copyOf(Objects.requireNonNull(data), data.length);
+		this(ByteBuffer.wrap(Arrays.copyOf(Objects.requireNonNull(data), data.length)));
+	}
+
+	// Private constructor of a rom reading the whole buffer.
+	private Rom(ByteBuffer data) {
+		rom = data;
+	}
+
+	/**
+	 * Method to create a rom whose contents are the bytes of the buffer between
+	 * its position and its limit, which are not copied. The buffer must not be
+	 * modified afterwards, but it can be shared by several roms, possibly used by
+	 * different threads.
+	 * 
+	 * @param data
+	 *            Buffer containing the contents of the rom.
+	 * 
+	 * @return The new rom.
+	 * 
+	 * @throws NullPointerException
+	 *             if data is null.
+	 */
+	public static Rom ofBuffer(ByteBuffer data) {
+		return new Rom(data.slice());
 	}
 
 	/**
@@ -34,12 +65,12 @@ public final class Rom {
 	 * @return Size of the rom as int.
 	 */
 	public int size() {
-		return rom.length;
+		return rom.limit();
 	}
 
 	public int read(int index) {
-		Objects.checkIndex(index, rom.length);
-		return Byte.toUnsignedInt(rom[index]);
+		Objects.checkIndex(index, rom.limit());
+		return Byte.toUnsignedInt(rom.get(index));
 	}
 
 	public void write(int address, int data) {
@@ -47,4 +78,29 @@ public final class Rom {
 		Preconditions.checkBits8(data);
 	}
 
+	/**
+	 * Lets the bus read the page starting at pageAddress directly from the rom.
+	 * Since the rom is usually mapped through a controller whose registers are
+	 * written in the same range, the page is mapped as not writable.
+	 * 
+	 * @param bus
+	 *            Bus on which the page is mapped.
+	 * 
+	 * @param pageAddress
+	 *            First address of the page.
+	 * 
+	 * @param index
+	 *            Index in the rom of the contents of pageAddress.
+	 * 
+	 * @throws IndexOutOfBoundsException
+	 *             if the rom does not contain the whole page.
+	 */
+	public void mapPage(Bus bus, int pageAddress, int index) {
+		Objects.checkFromIndexSize(index, PAGE_SIZE, rom.limit());
+		if (rom.hasArray())
+			bus.mapPage(pageAddress, rom.array(), rom.arrayOffset() + index, false);
+		else
+			bus.mapPage(pageAddress, rom, index);
+	}
+
 }
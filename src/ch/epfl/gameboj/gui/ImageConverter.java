@@ -5,7 +5,7 @@ import java.util.Objects;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.component.lcd.LcdController;
 import ch.epfl.gameboj.component.lcd.LcdImage;
-import javafx.scene.image.PixelWriter;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
 
 /**
@@ -19,6 +19,7 @@ import javafx.scene.image.WritableImage;
 public final class ImageConverter {
 
 	private static final int[] COLOR_MAP = new int[] { 0xFF_FF_FF_FF, 0xFF_D3_D3_D3, 0xFF_A9_A9_A9, 0xFF_00_00_00 };
+	private static final int NBR_PIXELS = LcdController.LCD_WIDTH * LcdController.LCD_HEIGHT;
 
 	/**
 	 * Public method in charge of converting an LcdImage into a JavaFX image.
@@ -36,16 +37,43 @@ public final class ImageConverter {
 	 *             LCD_WIDTH.
 	 */
 	public static javafx.scene.image.Image convert(LcdImage image) {
+		WritableImage imageToShow = new WritableImage(LcdController.LCD_WIDTH, LcdController.LCD_HEIGHT);
+		convert(image, imageToShow, new int[NBR_PIXELS]);
+		return imageToShow;
+	}
+
+	/**
+	 * Public method in charge of converting an LcdImage into an existing JavaFX
+	 * image, which is updated with a single write of all its pixels.
+	 * 
+	 * @param image
+	 *            LcdImage to be converted.
+	 * 
+	 * @param imageToShow
+	 *            JavaFX image of size LCD_WIDTH and LCD_HEIGHT in which the
+	 *            LcdImage is written.
+	 * 
+	 * @param pixels
+	 *            Array of at least LCD_WIDTH * LCD_HEIGHT elements used to store
+	 *            the ARGB pixels, which can be reused from one call to another.
+	 * 
+	 * @throws NullPointerException
+	 *             if any of the arguments is null.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the images are not of size LCD_HEIGHT and LCD_WIDTH, or if
+	 *             the array is too small.
+	 */
+	public static void convert(LcdImage image, WritableImage imageToShow, int[] pixels) {
 		Objects.requireNonNull(image);
+		Objects.requireNonNull(imageToShow);
 		Preconditions.checkArgument(
 				image.getHeight() == LcdController.LCD_HEIGHT && image.getWidth() == LcdController.LCD_WIDTH);
-		WritableImage imageToShow = new WritableImage(LcdController.LCD_WIDTH, LcdController.LCD_HEIGHT);
-		PixelWriter tool = imageToShow.getPixelWriter();
-		for (int y = 0; y < imageToShow.getHeight(); ++y) {
-			for (int x = 0; x < imageToShow.getWidth(); ++x) {
-				tool.setArgb(x, y, COLOR_MAP[image.get(x, y)]);
-			}
-		}
-		return imageToShow;
+		Preconditions.checkArgument(imageToShow.getHeight() == LcdController.LCD_HEIGHT
+				&& imageToShow.getWidth() == LcdController.LCD_WIDTH);
+		Preconditions.checkArgument(pixels.length >= NBR_PIXELS);
+		image.toArgb(COLOR_MAP, pixels, 0);
+		imageToShow.getPixelWriter().setPixels(0, 0, LcdController.LCD_WIDTH, LcdController.LCD_HEIGHT,
+				PixelFormat.getIntArgbInstance(), pixels, 0, LcdController.LCD_WIDTH);
 	}
 }
@@ -6,13 +6,16 @@ import java.util.List;
 import java.util.Map;
 
 import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.RewindBuffer;
 import ch.epfl.gameboj.component.Joypad.Key;
 import ch.epfl.gameboj.component.cartridge.Cartridge;
 import ch.epfl.gameboj.component.lcd.LcdController;
+import ch.epfl.gameboj.component.lcd.LcdImage;
 import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
@@ -26,6 +29,12 @@ import javafx.stage.Stage;
  *
  */
 public final class Main extends Application {
+
+	private static final int FRAMES_PER_SNAPSHOT = 4;
+	private static final long REWIND_BUDGET = 16 << 20;
+
+	private boolean rewinding;
+
 	/**
 	 * Main method to run the emulator
 	 * 
@@ -37,6 +46,16 @@ public final class Main extends Application {
 	public static void main(final String[] args) {
 		Application.launch(args);
 	}
+
+	// Method to obtain the image displayed by the GameBoy once it has drawn the
+	// frame following its current state. The images are not part of the recorded
+	// states, so a fork of the restored GameBoy is run until that frame is
+	// completed, which happens within two frames.
+	private static LcdImage restoredImage(GameBoy gameBoy) {
+		GameBoy fork = gameBoy.fork();
+		fork.runUntil(fork.cycles() + 2 * GameBoy.CYCLES_PER_FRAME + 1);
+		return fork.lcdController().currentImage();
+	}
 	
 
 	@Override
@@ -50,7 +69,11 @@ public final class Main extends Application {
 
 		
 		GameBoy gameboy = new GameBoy(Cartridge.ofFile(new File(ROM.get(0))));
+		RewindBuffer rewindBuffer = new RewindBuffer(gameboy, FRAMES_PER_SNAPSHOT, REWIND_BUDGET);
 		ImageView image = new ImageView();
+		WritableImage frame = new WritableImage(LcdController.LCD_WIDTH, LcdController.LCD_HEIGHT);
+		int[] pixels = new int[LcdController.LCD_WIDTH * LcdController.LCD_HEIGHT];
+		image.setImage(frame);
 		
 		image.setFitHeight(2 * LcdController.LCD_HEIGHT);
 		image.setFitWidth(2 * LcdController.LCD_WIDTH);  
@@ -67,14 +90,18 @@ public final class Main extends Application {
 		stringMap.put(" ", Key.SELECT); 
 		
 		image.setOnKeyPressed(e -> {
-			if (keyMap.containsKey(e.getCode()))
+			if (e.getCode() == KeyCode.R)
+				rewinding = true;
+			else if (keyMap.containsKey(e.getCode()))
 				gameboy.joypad().keyPressed(keyMap.get(e.getCode()));
 			else if (stringMap.containsKey(e.getText().toUpperCase()))
 				gameboy.joypad().keyPressed(stringMap.get(e.getText().toUpperCase()));
 		});
 		
 		image.setOnKeyReleased(e -> {
-			if (keyMap.containsKey(e.getCode()))
+			if (e.getCode() == KeyCode.R)
+				rewinding = false;
+			else if (keyMap.containsKey(e.getCode()))
 				gameboy.joypad().keyReleased(keyMap.get(e.getCode()));
 			else if (stringMap.containsKey(e.getText().toUpperCase()))
 				gameboy.joypad().keyReleased(stringMap.get(e.getText().toUpperCase()));
@@ -86,12 +113,29 @@ public final class Main extends Application {
 		
 		final AnimationTimer timer = new AnimationTimer() {
 			long start = System.nanoTime(); 
+			// Image published before the last rewind, which is not displayed again.
+			LcdImage stale;
 
 			@Override
 			public void handle(final long now) {
-				long elapsed = now - start;
-				gameboy.runUntil((long) (GameBoy.CYCLES_PER_NANOSECOND * elapsed));
-				image.setImage(ImageConverter.convert(gameboy.lcdController().currentImage()));
+				// While rewinding, the GameBoy goes back one snapshot per frame, the
+				// frame of the restored state is displayed, and the start is moved so
+				// that it then resumes from there.
+				if (rewinding) {
+					if (rewindBuffer.rewind()) {
+						stale = gameboy.lcdController().currentImage();
+						ImageConverter.convert(restoredImage(gameboy), frame, pixels);
+					}
+					start = now - (long) (gameboy.cycles() / GameBoy.CYCLES_PER_NANOSECOND);
+				} else {
+					long elapsed = now - start;
+					rewindBuffer.runUntil(Math.max(gameboy.cycles(), (long) (GameBoy.CYCLES_PER_NANOSECOND * elapsed)));
+					LcdImage current = gameboy.lcdController().currentImage();
+					if (current != stale) {
+						stale = null;
+						ImageConverter.convert(current, frame, pixels);
+					}
+				}
 			}
 		};
 		
@@ -0,0 +1,357 @@
+package ch.epfl.gameboj.headless;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import javax.imageio.ImageIO;
+
+import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.Preconditions;
+import ch.epfl.gameboj.component.Joypad.Key;
+import ch.epfl.gameboj.component.cartridge.Cartridge;
+import ch.epfl.gameboj.component.lcd.LcdController;
+import ch.epfl.gameboj.component.lcd.LcdImage;
+
+/**
+ * Final class in charge of running the emulator without display, as fast as
+ * possible, following a script of actions executed at given cycles: joypad
+ * input and dumps of frames or memory.
+ *
+ * A script contains one action per line, blank lines and lines starting with #
+ * being ignored. Each action starts with the cycle at which it is executed,
+ * either as a number of cycles or as a number of frames followed by f:
+ * <ul>
+ * <li>{@code <cycle> press <key>} and {@code <cycle> release <key>}, with the
+ * name of a Joypad.Key;</li>
+ * <li>{@code <cycle> frame <file>}, to write the current image in a PNG
+ * file;</li>
+ * <li>{@code <cycle> memory <file> <start> <end>}, to write the bytes of the
+ * bus between the hexadecimal addresses start (included) and end (excluded) in
+ * a file;</li>
+ * <li>{@code <cycle> render <interval>}, to draw only one frame out of the
+ * given number of frames, or none if it is 0 (see
+ * {@link LcdController#setFrameInterval(int)}), the frames written being then
+ * the last ones drawn;</li>
+ * <li>{@code <cycle> stop}, to end the run.</li>
+ * </ul>
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+public final class HeadlessRunner {
+
+	private static final int[] COLOR_MAP = new int[] { 0xFF_FF_FF_FF, 0xFF_D3_D3_D3, 0xFF_A9_A9_A9, 0xFF_00_00_00 };
+	private static final int ADDRESS_SPACE_SIZE = 0x1_0000;
+	private static final String FRAMES_SUFFIX = "f";
+	private static final String COMMENT_PREFIX = "#";
+
+	/**
+	 * Functional interface representing an action of a script executed on the
+	 * GameBoy.
+	 */
+	@FunctionalInterface
+	public interface Action {
+		/**
+		 * Method to execute the action.
+		 *
+		 * @param gameBoy
+		 *            on which the action is executed.
+		 *
+		 * @throws IOException
+		 *             if the action fails to write its output.
+		 */
+		void apply(GameBoy gameBoy) throws IOException;
+	}
+
+	private final GameBoy gameBoy;
+	private final TreeMap<Long, List<Action>> script = new TreeMap<>();
+	private long stopCycle = -1;
+
+	/**
+	 * Main method to run a game without display.
+	 *
+	 * @param args
+	 *            should contain the name of the game, followed by the name of the
+	 *            script file.
+	 *
+	 * @throws IOException
+	 *             if the game or the script cannot be read, or an output cannot
+	 *             be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: HeadlessRunner <game> <script>");
+			System.exit(1);
+		}
+		HeadlessRunner runner = new HeadlessRunner(new GameBoy(Cartridge.ofFile(new File(args[0]))));
+		List<String> lines = Files.readAllLines(Paths.get(args[1]));
+		for (int i = 0; i < lines.size(); ++i) {
+			try {
+				runner.schedule(lines.get(i));
+			} catch (IllegalArgumentException e) {
+				System.err.println("Invalid line " + (i + 1) + " of the script: " + lines.get(i));
+				System.exit(1);
+			}
+		}
+		long start = System.nanoTime();
+		runner.run();
+		System.out.println("Ran " + runner.gameBoy.cycles() + " cycles in " + (System.nanoTime() - start) / 1_000_000
+				+ " ms");
+	}
+
+	/**
+	 * Public constructor to create a runner of the given GameBoy, with an empty
+	 * script.
+	 *
+	 * @param gameBoy
+	 *            GameBoy which is run.
+	 *
+	 * @throws NullPointerException
+	 *             if the GameBoy is null.
+	 */
+	public HeadlessRunner(GameBoy gameBoy) {
+		this.gameBoy = Objects.requireNonNull(gameBoy);
+	}
+
+	/**
+	 * Accessor for the GameBoy run by the runner.
+	 *
+	 * @return the GameBoy of the runner.
+	 */
+	public GameBoy gameBoy() {
+		return gameBoy;
+	}
+
+	/**
+	 * Method to add an action to the script, executed once the given number of
+	 * cycles has been simulated. Actions of the same cycle are executed in the
+	 * order in which they were added.
+	 *
+	 * @param cycle
+	 *            at which the action is executed.
+	 *
+	 * @param action
+	 *            to be executed.
+	 *
+	 * @return the runner.
+	 *
+	 * @throws NullPointerException
+	 *             if the action is null.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the cycle is negative.
+	 */
+	public HeadlessRunner schedule(long cycle, Action action) {
+		Objects.requireNonNull(action);
+		Preconditions.checkArgument(cycle >= 0);
+		script.computeIfAbsent(cycle, c -> new ArrayList<>()).add(action);
+		return this;
+	}
+
+	/**
+	 * Method to add the action described by a line of a script, in the format
+	 * given in the documentation of the class. Blank lines and comments are
+	 * ignored.
+	 *
+	 * @param line
+	 *            of the script.
+	 *
+	 * @return the runner.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the line is not valid.
+	 */
+	public HeadlessRunner schedule(String line) {
+		String trimmed = line.trim();
+		if (trimmed.isEmpty() || trimmed.startsWith(COMMENT_PREFIX))
+			return this;
+		String[] words = trimmed.split("\\s+");
+		Preconditions.checkArgument(words.length >= 2);
+		long cycle = parseCycle(words[0]);
+		switch (words[1]) {
+		case "press":
+			Preconditions.checkArgument(words.length == 3);
+			return schedule(cycle, pressKey(Key.valueOf(words[2])));
+		case "release":
+			Preconditions.checkArgument(words.length == 3);
+			return schedule(cycle, releaseKey(Key.valueOf(words[2])));
+		case "frame":
+			Preconditions.checkArgument(words.length == 3);
+			return schedule(cycle, dumpFrame(Paths.get(words[2])));
+		case "memory":
+			Preconditions.checkArgument(words.length == 5);
+			return schedule(cycle,
+					dumpMemory(Paths.get(words[2]), Integer.parseInt(words[3], 16), Integer.parseInt(words[4], 16)));
+		case "render":
+			Preconditions.checkArgument(words.length == 3);
+			return schedule(cycle, renderFrames(Integer.parseInt(words[2])));
+		case "stop":
+			Preconditions.checkArgument(words.length == 2);
+			stopCycle = stopCycle == -1 ? cycle : Math.min(stopCycle, cycle);
+			return this;
+		default:
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * Method to run the GameBoy until the cycle of the first stop of the script,
+	 * or of its last action if it has no stop, executing the actions.
+	 *
+	 * @throws IOException
+	 *             if an action fails to write its output.
+	 */
+	public void run() throws IOException {
+		long end = stopCycle != -1 ? stopCycle : (script.isEmpty() ? gameBoy.cycles() : script.lastKey());
+		run(Math.max(end, gameBoy.cycles()));
+	}
+
+	/**
+	 * Method to run the GameBoy until the given number of cycles has been
+	 * simulated, executing the actions of the script scheduled up to this cycle
+	 * (included). The actions scheduled before the current cycle are executed
+	 * first.
+	 *
+	 * @param cycles
+	 *            number of cycles simulated at the end of the run.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the number of cycles already simulated is bigger.
+	 *
+	 * @throws IOException
+	 *             if an action fails to write its output.
+	 */
+	public void run(long cycles) throws IOException {
+		Preconditions.checkArgument(cycles >= gameBoy.cycles());
+		Map<Long, List<Action>> due = script.headMap(cycles, true);
+		for (Map.Entry<Long, List<Action>> e : due.entrySet()) {
+			gameBoy.runUntil(Math.max(e.getKey(), gameBoy.cycles()));
+			for (Action action : e.getValue())
+				action.apply(gameBoy);
+		}
+		due.clear();
+		gameBoy.runUntil(cycles);
+	}
+
+	/**
+	 * Method to obtain the action pressing a key of the joypad.
+	 *
+	 * @param key
+	 *            pressed.
+	 *
+	 * @return the action.
+	 */
+	public static Action pressKey(Key key) {
+		Objects.requireNonNull(key);
+		return gameBoy -> gameBoy.joypad().keyPressed(key);
+	}
+
+	/**
+	 * Method to obtain the action releasing a key of the joypad.
+	 *
+	 * @param key
+	 *            released.
+	 *
+	 * @return the action.
+	 */
+	public static Action releaseKey(Key key) {
+		Objects.requireNonNull(key);
+		return gameBoy -> gameBoy.joypad().keyReleased(key);
+	}
+
+	/**
+	 * Method to obtain the action choosing which frames are drawn by the GameBoy
+	 * (see {@link LcdController#setFrameInterval(int)}).
+	 *
+	 * @param frameInterval
+	 *            number of frames between two drawn frames, 0 to draw none.
+	 *
+	 * @return the action.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the number is negative.
+	 */
+	public static Action renderFrames(int frameInterval) {
+		Preconditions.checkArgument(frameInterval >= 0);
+		return gameBoy -> gameBoy.lcdController().setFrameInterval(frameInterval);
+	}
+
+	/**
+	 * Method to obtain the action writing the current image of the GameBoy in a
+	 * PNG file, whose directories are created if needed.
+	 *
+	 * @param file
+	 *            in which the image is written.
+	 *
+	 * @return the action.
+	 */
+	public static Action dumpFrame(Path file) {
+		Objects.requireNonNull(file);
+		return gameBoy -> {
+			LcdImage image = gameBoy.lcdController().currentImage();
+			int[] pixels = new int[LcdController.LCD_WIDTH * LcdController.LCD_HEIGHT];
+			image.toArgb(COLOR_MAP, pixels, 0);
+			BufferedImage png = new BufferedImage(LcdController.LCD_WIDTH, LcdController.LCD_HEIGHT,
+					BufferedImage.TYPE_INT_RGB);
+			png.setRGB(0, 0, LcdController.LCD_WIDTH, LcdController.LCD_HEIGHT, pixels, 0, LcdController.LCD_WIDTH);
+			createParent(file);
+			ImageIO.write(png, "png", file.toFile());
+		};
+	}
+
+	/**
+	 * Method to obtain the action writing the bytes read on the bus between two
+	 * addresses in a file, whose directories are created if needed.
+	 *
+	 * @param file
+	 *            in which the bytes are written.
+	 *
+	 * @param start
+	 *            first address read.
+	 *
+	 * @param end
+	 *            address following the last one read, at most 0x10000.
+	 *
+	 * @return the action.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the addresses do not form a valid range.
+	 */
+	public static Action dumpMemory(Path file, int start, int end) {
+		Objects.requireNonNull(file);
+		Preconditions.checkArgument(0 <= start && start <= end && end <= ADDRESS_SPACE_SIZE);
+		return gameBoy -> {
+			byte[] bytes = new byte[end - start];
+			for (int i = 0; i < bytes.length; ++i)
+				bytes[i] = (byte) gameBoy.bus().read(start + i);
+			createParent(file);
+			Files.write(file, bytes);
+		};
+	}
+
+	// Parses a cycle given as a number of cycles, or a number of frames followed by
+	// f.
+	private static long parseCycle(String word) {
+		long cycle = word.endsWith(FRAMES_SUFFIX)
+				? Long.parseLong(word.substring(0, word.length() - FRAMES_SUFFIX.length())) * GameBoy.CYCLES_PER_FRAME
+				: Long.parseLong(word);
+		Preconditions.checkArgument(cycle >= 0);
+		return cycle;
+	}
+
+	// Creates the directories containing the file if needed.
+	private static void createParent(Path file) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null)
+			Files.createDirectories(parent);
+	}
+}
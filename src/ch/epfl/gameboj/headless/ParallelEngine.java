@@ -0,0 +1,356 @@
+package ch.epfl.gameboj.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.Preconditions;
+import ch.epfl.gameboj.component.cartridge.Cartridge;
+
+/**
+ * Final class in charge of running many independent GameBoy sessions
+ * concurrently on a pool of threads, without display.
+ *
+ * Each session advances in slices of a fixed number of frames. Once a slice is
+ * done, the session is queued again behind the other waiting sessions, so that
+ * all sessions progress at the same pace whatever their number, until each of
+ * them has consumed its budget of cycles. The pool has one thread per core by
+ * default, and sessions never share state, so the throughput grows with the
+ * number of cores.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+public final class ParallelEngine implements AutoCloseable {
+
+	private static final int DEFAULT_FRAMES_PER_SLICE = 1;
+
+	private final ForkJoinPool pool;
+	private final int parallelism;
+	private final long cyclesPerSlice;
+	private final List<Session> sessions = new ArrayList<>();
+
+	/**
+	 * Final class representing a session of the engine: a GameBoy, run by a
+	 * HeadlessRunner executing its script, and its budget of cycles.
+	 */
+	public static final class Session {
+
+		private final HeadlessRunner runner;
+		private final long endCycle;
+		private volatile boolean finished;
+		private volatile Throwable failure;
+
+		private Session(HeadlessRunner runner, long cycleBudget) {
+			this.runner = runner;
+			this.endCycle = runner.gameBoy().cycles() + cycleBudget;
+		}
+
+		/**
+		 * Accessor for the GameBoy of the session. It must not be used while the
+		 * engine is running.
+		 *
+		 * @return the GameBoy of the session.
+		 */
+		public GameBoy gameBoy() {
+			return runner.gameBoy();
+		}
+
+		/**
+		 * Accessor for the number of cycles the GameBoy of the session has
+		 * simulated once its budget has been consumed.
+		 *
+		 * @return the cycle at which the session ends.
+		 */
+		public long endCycle() {
+			return endCycle;
+		}
+
+		/**
+		 * Method to know whether the session has consumed its budget or failed.
+		 *
+		 * @return true if the session is finished.
+		 */
+		public boolean isFinished() {
+			return finished;
+		}
+
+		/**
+		 * Accessor for the exception or error which ended the session before its
+		 * budget was consumed, if any.
+		 *
+		 * @return the throwable thrown while running the session, if any.
+		 */
+		public Optional<Throwable> failure() {
+			return Optional.ofNullable(failure);
+		}
+
+		// Runs the session for at most the given number of cycles, and returns
+		// the number of cycles simulated. Errors are recorded as the other
+		// exceptions, the Cpu and the cartridges throwing some for unsupported
+		// instructions, so that the session ends without stopping the run.
+		private long runSlice(long cycles) {
+			GameBoy gameBoy = runner.gameBoy();
+			long start = gameBoy.cycles();
+			try {
+				runner.run(Math.min(endCycle, start + cycles));
+			} catch (Throwable e) {
+				failure = e;
+			}
+			finished = failure != null || gameBoy.cycles() >= endCycle;
+			return gameBoy.cycles() - start;
+		}
+	}
+
+	/**
+	 * Final class representing the throughput of a run of the engine.
+	 */
+	public static final class Report {
+
+		private final long cycles;
+		private final long nanos;
+		private final int parallelism;
+
+		private Report(long cycles, long nanos, int parallelism) {
+			this.cycles = cycles;
+			this.nanos = nanos;
+			this.parallelism = parallelism;
+		}
+
+		/**
+		 * Accessor for the total number of cycles simulated by the sessions.
+		 *
+		 * @return the number of cycles simulated.
+		 */
+		public long cycles() {
+			return cycles;
+		}
+
+		/**
+		 * Method to obtain the total number of frames simulated by the sessions.
+		 *
+		 * @return the number of frames simulated.
+		 */
+		public double frames() {
+			return cycles / (double) GameBoy.CYCLES_PER_FRAME;
+		}
+
+		/**
+		 * Accessor for the duration of the run.
+		 *
+		 * @return the duration of the run in nanoseconds.
+		 */
+		public long nanos() {
+			return nanos;
+		}
+
+		/**
+		 * Method to obtain the number of frames simulated per second, all sessions
+		 * together.
+		 *
+		 * @return the number of frames per second.
+		 */
+		public double framesPerSecond() {
+			return nanos == 0 ? 0 : frames() * TimeUnit.SECONDS.toNanos(1) / nanos;
+		}
+
+		/**
+		 * Method to obtain the number of frames simulated per second and per thread
+		 * of the engine.
+		 *
+		 * @return the number of frames per second and per core.
+		 */
+		public double framesPerSecondPerCore() {
+			return framesPerSecond() / parallelism;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%.0f frames in %d ms: %.1f frames/s, %.1f frames/s per core (%d threads)", frames(),
+					TimeUnit.NANOSECONDS.toMillis(nanos), framesPerSecond(), framesPerSecondPerCore(), parallelism);
+		}
+	}
+
+	/**
+	 * Main method to run several sessions of a game without display and to print
+	 * the throughput.
+	 *
+	 * @param args
+	 *            should contain the name of the game, the number of sessions, the
+	 *            number of frames of each session and optionally the name of a
+	 *            script file executed by every session.
+	 *
+	 * @throws IOException
+	 *             if the game or the script cannot be read.
+	 *
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting for the sessions.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length != 3 && args.length != 4) {
+			System.err.println("Usage: ParallelEngine <game> <sessions> <frames> [script]");
+			System.exit(1);
+		}
+		File rom = new File(args[0]);
+		int nbrSessions = Integer.parseInt(args[1]);
+		long budget = Long.parseLong(args[2]) * GameBoy.CYCLES_PER_FRAME;
+		List<String> script = args.length == 4 ? Files.readAllLines(Paths.get(args[3])) : List.of();
+
+		try (ParallelEngine engine = new ParallelEngine()) {
+			for (int i = 0; i < nbrSessions; ++i) {
+				HeadlessRunner runner = new HeadlessRunner(new GameBoy(Cartridge.ofFile(rom)));
+				for (String line : script)
+					runner.schedule(line);
+				engine.add(runner, budget);
+			}
+			System.out.println(engine.run());
+			for (Session session : engine.sessions())
+				session.failure().ifPresent(Throwable::printStackTrace);
+		}
+	}
+
+	/**
+	 * Public constructor to create an engine with one thread per available core,
+	 * whose sessions advance one frame at a time.
+	 */
+	public ParallelEngine() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_FRAMES_PER_SLICE);
+	}
+
+	/**
+	 * Public constructor to create an engine with the given number of threads and
+	 * size of the slices.
+	 *
+	 * @param parallelism
+	 *            number of threads running the sessions.
+	 *
+	 * @param framesPerSlice
+	 *            number of frames a session runs before letting the other
+	 *            sessions run.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if one of the arguments is not strictly positive.
+	 */
+	public ParallelEngine(int parallelism, int framesPerSlice) {
+		Preconditions.checkArgument(parallelism > 0 && framesPerSlice > 0);
+		this.parallelism = parallelism;
+		this.cyclesPerSlice = framesPerSlice * GameBoy.CYCLES_PER_FRAME;
+		// asyncMode makes the queues of the workers FIFO, for the sessions to be
+		// run in turn.
+		this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+	}
+
+	/**
+	 * Method to add a session running the given GameBoy for the given number of
+	 * cycles.
+	 *
+	 * @param gameBoy
+	 *            run by the session.
+	 *
+	 * @param cycleBudget
+	 *            number of cycles simulated by the session.
+	 *
+	 * @return the session.
+	 *
+	 * @throws NullPointerException
+	 *             if the GameBoy is null.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the budget is negative.
+	 */
+	public Session add(GameBoy gameBoy, long cycleBudget) {
+		return add(new HeadlessRunner(gameBoy), cycleBudget);
+	}
+
+	/**
+	 * Method to add a session running the given runner, with its script, for the
+	 * given number of cycles. The runner must not be used elsewhere while the
+	 * engine is running.
+	 *
+	 * @param runner
+	 *            run by the session.
+	 *
+	 * @param cycleBudget
+	 *            number of cycles simulated by the session.
+	 *
+	 * @return the session.
+	 *
+	 * @throws NullPointerException
+	 *             if the runner is null.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the budget is negative.
+	 */
+	public Session add(HeadlessRunner runner, long cycleBudget) {
+		Objects.requireNonNull(runner);
+		Preconditions.checkArgument(cycleBudget >= 0);
+		Session session = new Session(runner, cycleBudget);
+		sessions.add(session);
+		return session;
+	}
+
+	/**
+	 * Accessor for the sessions of the engine, in the order in which they were
+	 * added.
+	 *
+	 * @return an unmodifiable view of the sessions.
+	 */
+	public List<Session> sessions() {
+		return Collections.unmodifiableList(sessions);
+	}
+
+	/**
+	 * Method to run all the sessions which are not finished until they are, and
+	 * to measure the throughput of the run.
+	 *
+	 * @return the report of the run.
+	 *
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting for the sessions.
+	 */
+	public Report run() throws InterruptedException {
+		List<Session> pending = new ArrayList<>();
+		for (Session session : sessions)
+			if (session.gameBoy().cycles() >= session.endCycle)
+				session.finished = true;
+			else if (!session.isFinished())
+				pending.add(session);
+
+		CountDownLatch remaining = new CountDownLatch(pending.size());
+		AtomicLong cycles = new AtomicLong();
+		long start = System.nanoTime();
+		for (Session session : pending)
+			pool.execute(() -> runSlice(session, remaining, cycles));
+		remaining.await();
+		return new Report(cycles.get(), System.nanoTime() - start, parallelism);
+	}
+
+	/**
+	 * Method to stop the threads of the engine, once the current run is done.
+	 */
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+	// Runs a slice of the session, then queues the session again behind the
+	// others if it is not finished.
+	private void runSlice(Session session, CountDownLatch remaining, AtomicLong cycles) {
+		cycles.addAndGet(session.runSlice(cyclesPerSlice));
+		if (session.isFinished())
+			remaining.countDown();
+		else
+			pool.execute(() -> runSlice(session, remaining, cycles));
+	}
+}
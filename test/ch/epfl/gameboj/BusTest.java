@@ -5,9 +5,11 @@ package ch.epfl.gameboj;
 import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
 import static ch.epfl.test.TestRandomizer.newRandom;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Random;
@@ -15,6 +17,7 @@ import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 import ch.epfl.gameboj.component.Component;
+import ch.epfl.gameboj.component.cartridge.Cartridge;
 
 class BusTest {
     private static SimpleComponent[] newComponents(int n) {
@@ -90,6 +93,113 @@ class BusTest {
             assertEquals((i * 2018) & 0xFF, b.read(i));
     }
 
+    @Test
+    void attachWithRangeFailsForInvalidRange() {
+        Bus b = new Bus();
+        SimpleComponent c = new SimpleComponent(0, 0);
+        assertThrows(IllegalArgumentException.class,
+                () -> b.attach(c, -1, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> b.attach(c, 10, 9));
+        assertThrows(IllegalArgumentException.class,
+                () -> b.attach(c, 0, 0x1_0001));
+    }
+
+    @Test
+    void readAndWriteWorkWithRangedComponents() {
+        Bus b = new Bus();
+        SimpleComponent[] cs = new SimpleComponent[] {
+                new SimpleComponent(0x0000, 1), new SimpleComponent(0x8123, 2),
+                new SimpleComponent(0xFF0F, 3), new SimpleComponent(0xFFFF, 4) };
+        b.attach(cs[0], 0x0000, 0x8000);
+        b.attach(cs[1], 0x8000, 0xA000);
+        b.attach(cs[2], 0xFF0F, 0xFF10);
+        b.attach(cs[3], 0xFF80, 0x1_0000);
+        assertEquals(1, b.read(0x0000));
+        assertEquals(2, b.read(0x8123));
+        assertEquals(3, b.read(0xFF0F));
+        assertEquals(4, b.read(0xFFFF));
+        assertEquals(0xFF, b.read(0xFF10));
+        for (SimpleComponent c: cs)
+            assertFalse(c.wasWritten());
+        b.write(0xFF0F, 42);
+        assertEquals(42, b.read(0xFF0F));
+        assertTrue(cs[2].wasWritten());
+        assertFalse(cs[3].wasWritten());
+    }
+
+    @Test
+    void rangedComponentsCoexistWithOtherComponents() {
+        Bus b = new Bus();
+        SimpleComponent ranged = new SimpleComponent(0xFF00, 1);
+        SimpleComponent overlapping = new SimpleComponent(0xFF00, 2);
+        SimpleComponent other = new SimpleComponent(0xC000, 3);
+        b.attach(ranged, 0xFF00, 0xFF01);
+        b.attach(overlapping, 0xFE00, 0x1_0000);
+        b.attach(other);
+        assertEquals(1, b.read(0xFF00));
+        assertEquals(3, b.read(0xC000));
+        b.write(0xFF00, 42);
+        assertEquals(42, b.read(0xFF00));
+        assertTrue(overlapping.wasWritten());
+        assertTrue(other.wasWritten());
+    }
+
+    @Test
+    void directPagesAreReadAndRemappedAfterWrites() {
+        Bus b = new Bus();
+        byte[][] banks = new byte[][] { new byte[0x100], new byte[0x100] };
+        banks[0][0x12] = 1;
+        banks[1][0x12] = 2;
+        int[] bank = new int[1];
+        Component c = new Component() {
+            @Override
+            public int read(int address) {
+                return Byte.toUnsignedInt(banks[bank[0]][address & 0xFF]);
+            }
+
+            @Override
+            public void write(int address, int data) {
+                bank[0] = data & 1;
+            }
+
+            @Override
+            public void mapPage(Bus bus, int pageAddress) {
+                bus.mapPage(pageAddress, banks[bank[0]], 0, false);
+            }
+        };
+        b.attach(c, 0x4000, 0x4100);
+        assertEquals(1, b.read(0x4012));
+        b.write(0x4000, 1);
+        assertEquals(2, b.read(0x4012));
+        banks[1][0x12] = 3;
+        assertEquals(3, b.read(0x4012));
+        assertThrows(IllegalArgumentException.class,
+                () -> b.mapPage(0x4100, banks[0], 0, true));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> b.mapPage(0x4000, banks[0], 1, true));
+    }
+
+    @Test
+    void cartridgeRamIsRemappedWhenOnlyItWasReadSinceTheLastWrite() {
+        byte[] romData = new byte[0x8000];
+        romData[0x147] = 1;
+        romData[0x149] = 2;
+        Cartridge cartridge = Cartridge.ofBuffer(ByteBuffer.wrap(romData));
+        Bus b = new Bus();
+        b.attach(cartridge, 0x0000, 0x8000);
+        b.attach(cartridge, 0xA000, 0xC000);
+        b.read(0x0100);
+        b.write(0x0000, 0x0A);
+        b.write(0xA000, 0x42);
+        assertEquals(0x42, b.read(0xA000));
+        b.write(0x0000, 0x00);
+        assertEquals(0xFF, cartridge.read(0xA000));
+        assertEquals(0xFF, b.read(0xA000));
+        b.write(0x0000, 0x0A);
+        assertEquals(0x42, b.read(0xA000));
+    }
+
     @Test
     void writeFailsForInvalidAddress() {
         Random rng = newRandom();
@@ -0,0 +1,158 @@
+package ch.epfl.gameboj;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.component.Joypad.Key;
+import ch.epfl.gameboj.component.cartridge.CartridgeTest;
+
+public final class GameBoyStateTest {
+
+	private static GameBoy newGameBoy() {
+		byte[] rom = new byte[0x8000];
+		rom[0x147] = 3; // MBC1 with ram
+		rom[0x149] = 2; // 8 KB of ram
+		return new GameBoy(CartridgeTest.cartridgeWithData(rom));
+	}
+
+	// Runs the GameBoy and modifies the state of most of its components.
+	private static GameBoy runningGameBoy() {
+		GameBoy gameBoy = newGameBoy();
+		gameBoy.runUntil(20 * GameBoy.CYCLES_PER_FRAME + 1234);
+		Bus bus = gameBoy.bus();
+		bus.write(0x0000, 0x0A);
+		bus.write(0xA123, 0x42);
+		bus.write(0xC456, 0x24);
+		bus.write(0xFF90, 0x17);
+		bus.write(AddressMap.REG_TAC, 0b101);
+		bus.write(AddressMap.REG_TMA, 0xF0);
+		bus.write(AddressMap.REG_P1, 0b0010_0000);
+		gameBoy.joypad().keyPressed(Key.A);
+		gameBoy.runUntil(gameBoy.cycles() + 3 * GameBoy.CYCLES_PER_FRAME + 17);
+		return gameBoy;
+	}
+
+	private static int[] contents(GameBoy gameBoy) {
+		int[] contents = new int[0x1_0000];
+		for (int address = 0; address < contents.length; ++address)
+			contents[address] = gameBoy.bus().read(address);
+		return contents;
+	}
+
+	private static void assertSameState(GameBoy expected, GameBoy actual) {
+		assertEquals(expected.cycles(), actual.cycles());
+		assertArrayEquals(expected.cpu()._testGetPcSpAFBCDEHL(), actual.cpu()._testGetPcSpAFBCDEHL());
+		assertArrayEquals(contents(expected), contents(actual));
+	}
+
+	// The images are not saved: they are the same once the frame started after
+	// the restoration is drawn.
+	private static void assertSameImage(GameBoy expected, GameBoy actual) {
+		assertEquals(expected.lcdController().currentImage(), actual.lcdController().currentImage());
+	}
+
+	@Test
+	void restoredGameBoyRunsLikeTheSavedOne() {
+		GameBoy saved = runningGameBoy();
+		ByteBuffer state = ByteBuffer.allocate(saved.stateSize());
+		saved.saveState(state);
+		assertEquals(0, state.remaining());
+		state.flip();
+
+		GameBoy restored = newGameBoy();
+		restored.restoreState(state);
+		assertEquals(0, state.remaining());
+		assertSameState(saved, restored);
+
+		for (int i = 0; i < 10; ++i) {
+			long cycles = saved.cycles() + GameBoy.CYCLES_PER_FRAME + 11 * i;
+			saved.runUntil(cycles);
+			restored.runUntil(cycles);
+			assertSameState(saved, restored);
+			if (i > 0)
+				assertSameImage(saved, restored);
+		}
+	}
+
+	@Test
+	void gameBoyCanBeRewoundToASavedState() {
+		GameBoy gameBoy = runningGameBoy();
+		GameBoy reference = runningGameBoy();
+		ByteBuffer state = ByteBuffer.allocate(gameBoy.stateSize());
+		gameBoy.saveState(state);
+
+		gameBoy.bus().write(0xC456, 0x99);
+		gameBoy.joypad().keyReleased(Key.A);
+		gameBoy.runUntil(gameBoy.cycles() + 5 * GameBoy.CYCLES_PER_FRAME);
+		gameBoy.restoreState(state.flip());
+		assertSameState(reference, gameBoy);
+
+		reference.runUntil(reference.cycles() + 2 * GameBoy.CYCLES_PER_FRAME);
+		gameBoy.runUntil(gameBoy.cycles() + 2 * GameBoy.CYCLES_PER_FRAME);
+		assertSameState(reference, gameBoy);
+		assertSameImage(reference, gameBoy);
+	}
+
+	@Test
+	void saveStateFailsWithTooSmallBuffer() {
+		GameBoy gameBoy = newGameBoy();
+		ByteBuffer state = ByteBuffer.allocate(gameBoy.stateSize() - 1);
+		assertThrows(IllegalArgumentException.class, () -> gameBoy.saveState(state));
+		assertEquals(0, state.position());
+	}
+
+	@Test
+	void restoreStateFailsWithInvalidState() {
+		GameBoy gameBoy = newGameBoy();
+		ByteBuffer garbage = ByteBuffer.allocate(gameBoy.stateSize());
+		assertThrows(IllegalArgumentException.class, () -> gameBoy.restoreState(garbage));
+		assertEquals(0, garbage.position());
+
+		ByteBuffer state = ByteBuffer.allocate(gameBoy.stateSize());
+		gameBoy.saveState(state);
+		GameBoy withoutRam = new GameBoy(CartridgeTest.cartridgeWithData(new byte[0x8000]));
+		assertThrows(IllegalArgumentException.class, () -> withoutRam.restoreState(state.flip()));
+		assertThrows(IllegalArgumentException.class, () -> gameBoy.restoreState(state.limit(state.limit() - 1)));
+	}
+
+	@Test
+	void forkedGameBoyRunsLikeItsParent() {
+		GameBoy parent = runningGameBoy();
+		GameBoy fork = parent.fork();
+		assertSameState(parent, fork);
+		assertSameImage(parent, fork);
+		for (int i = 0; i < 10; ++i) {
+			long cycles = parent.cycles() + GameBoy.CYCLES_PER_FRAME + 11 * i;
+			parent.runUntil(cycles);
+			fork.runUntil(cycles);
+			assertSameState(parent, fork);
+			assertSameImage(parent, fork);
+		}
+	}
+
+	@Test
+	void forkedGameBoysDoNotShareWrites() {
+		GameBoy parent = runningGameBoy();
+		GameBoy reference = runningGameBoy();
+		GameBoy fork = parent.fork();
+		for (int address : new int[] { 0xA123, 0xC456, 0xE460, 0xFF90, 0x9800, 0xFE00 }) {
+			fork.bus().write(address, 0x33);
+			assertEquals(0x33, fork.bus().read(address));
+			assertEquals(reference.bus().read(address), parent.bus().read(address));
+			parent.bus().write(address, 0x44);
+			assertEquals(0x33, fork.bus().read(address));
+		}
+		assertEquals(0x33, fork.bus().read(0xC460));
+		assertEquals(0x44, parent.bus().read(0xC460));
+
+		GameBoy other = reference.fork();
+		other.runUntil(other.cycles() + GameBoy.CYCLES_PER_FRAME);
+		GameBoy rewound = reference.fork();
+		assertArrayEquals(contents(reference), contents(rewound));
+	}
+}
@@ -0,0 +1,93 @@
+package ch.epfl.gameboj;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.component.cartridge.CartridgeTest;
+
+public final class RewindBufferTest {
+
+	private static GameBoy newGameBoy() {
+		return new GameBoy(CartridgeTest.cartridgeWithData(new byte[0x8000]));
+	}
+
+	private static byte[] state(GameBoy gameBoy) {
+		ByteBuffer state = ByteBuffer.allocate(gameBoy.stateSize());
+		gameBoy.saveState(state);
+		return state.array();
+	}
+
+	@Test
+	void constructorFailsForInvalidArguments() {
+		assertThrows(NullPointerException.class, () -> new RewindBuffer(null, 1, 1));
+		assertThrows(IllegalArgumentException.class, () -> new RewindBuffer(newGameBoy(), 0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new RewindBuffer(newGameBoy(), 1, 0));
+	}
+
+	@Test
+	void statesAreRestoredFromTheNewestToTheOldest() {
+		GameBoy gameBoy = newGameBoy();
+		RewindBuffer rewindBuffer = new RewindBuffer(gameBoy, 2, Long.MAX_VALUE);
+		List<byte[]> states = new ArrayList<>();
+		for (int i = 0; i < 10; ++i) {
+			rewindBuffer.runUntil(2 * i * GameBoy.CYCLES_PER_FRAME);
+			states.add(state(gameBoy));
+			gameBoy.bus().write(0xC000 + 3 * i, i);
+		}
+		rewindBuffer.runUntil(gameBoy.cycles() + 100);
+		assertEquals(10, rewindBuffer.size());
+
+		for (int i = 9; i >= 0; --i) {
+			assertTrue(rewindBuffer.rewind());
+			assertArrayEquals(states.get(i), state(gameBoy));
+		}
+		assertFalse(rewindBuffer.rewind());
+	}
+
+	@Test
+	void recordingResumesAfterRewind() {
+		GameBoy gameBoy = newGameBoy();
+		RewindBuffer rewindBuffer = new RewindBuffer(gameBoy, 1, Long.MAX_VALUE);
+		rewindBuffer.runUntil(5 * GameBoy.CYCLES_PER_FRAME + 10);
+		for (int i = 0; i < 3; ++i)
+			assertTrue(rewindBuffer.rewind());
+		byte[] third = state(gameBoy);
+		assertEquals(3 * GameBoy.CYCLES_PER_FRAME, gameBoy.cycles());
+
+		rewindBuffer.runUntil(7 * GameBoy.CYCLES_PER_FRAME + 10);
+		assertEquals(8, rewindBuffer.size());
+		for (int i = 0; i < 5; ++i)
+			assertTrue(rewindBuffer.rewind());
+		assertArrayEquals(third, state(gameBoy));
+	}
+
+	@Test
+	void oldestStatesAreDiscardedBeyondTheBudget() {
+		GameBoy gameBoy = newGameBoy();
+		long budget = 4L * gameBoy.stateSize();
+		RewindBuffer rewindBuffer = new RewindBuffer(gameBoy, 1, budget);
+		for (int i = 0; i < 100; ++i) {
+			rewindBuffer.runUntil(i * GameBoy.CYCLES_PER_FRAME);
+			for (int j = 0; j < 100; ++j)
+				gameBoy.bus().write(0xC000 + 64 * j, i);
+			assertTrue(rewindBuffer.memoryUsed() <= budget);
+		}
+		assertTrue(rewindBuffer.size() > 1 && rewindBuffer.size() < 100);
+		rewindBuffer.runUntil(gameBoy.cycles() + 1);
+
+		int size = rewindBuffer.size();
+		for (int i = 0; i < size; ++i)
+			assertTrue(rewindBuffer.rewind());
+		assertEquals((100 - size) * GameBoy.CYCLES_PER_FRAME, gameBoy.cycles());
+		assertFalse(rewindBuffer.rewind());
+	}
+}
@@ -0,0 +1,66 @@
+package ch.epfl.gameboj.bits;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public final class BitVectorOperationsTest {
+
+	private static BitVector randomVector(Random rng, int size) {
+		BitVector.Builder builder = new BitVector.Builder(size);
+		for (int i = 0; i < size / Byte.SIZE; ++i)
+			builder.setByte(i, rng.nextInt(0x100));
+		return builder.build();
+	}
+
+	@Test
+	void andNotAndBlendWork() {
+		BitVector a = new BitVector.Builder(32).setByte(0, 0b1100_1100).setByte(1, 0b1010_1010)
+				.setByte(2, 0b0101_0101).setByte(3, 0b1001_0110).build();
+		BitVector b = new BitVector.Builder(32).setByte(0, 0b1110_1110).setByte(1, 0b0001_0001)
+				.setByte(2, 0b1101_1101).setByte(3, 0b0101_0101).build();
+		BitVector mask = new BitVector.Builder(32).setByte(0, 0b1111_0000).setByte(2, 0b1111_1111).build();
+		assertEquals(a.and(b.not()), a.andNot(b));
+		assertEquals(a.and(mask.not()).or(b.and(mask)), a.blend(b, mask));
+		assertEquals("10000010000000001010101000000000", a.andNot(b).toString());
+		assertEquals("10010110110111011010101011101100", a.blend(b, mask).toString());
+		assertThrows(IllegalArgumentException.class, () -> a.andNot(new BitVector(64)));
+		assertThrows(IllegalArgumentException.class, () -> a.blend(b, new BitVector(64)));
+	}
+
+	@Test
+	void builderOperationsWorkInPlace() {
+		Random rng = newRandom();
+		for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+			BitVector a = randomVector(rng, 96), b = randomVector(rng, 96), c = randomVector(rng, 96);
+			BitVector built = new BitVector.Builder(a).and(b).or(c).andNot(b).blend(c, a).not().build();
+			assertEquals(a.and(b).or(c).andNot(b).blend(c, a).not(), built);
+			assertEquals(a, new BitVector.Builder(a).build());
+		}
+		BitVector.Builder builder = new BitVector.Builder(32);
+		builder.build();
+		assertThrows(IllegalStateException.class, () -> builder.and(new BitVector(32)));
+		assertThrows(IllegalStateException.class, () -> builder.not());
+		assertThrows(IllegalArgumentException.class, () -> new BitVector.Builder(32).or(new BitVector(64)));
+	}
+
+	@Test
+	void extractionsMatchBitByBitExtension() {
+		Random rng = newRandom();
+		for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+			BitVector v = randomVector(rng, 96);
+			int index = rng.nextInt(401) - 200;
+			BitVector zero = v.extractZeroExtended(index, 64), wrapped = v.extractWrapped(index, 64);
+			for (int j = 0; j < 64; ++j) {
+				int k = index + j;
+				assertEquals(k >= 0 && k < 96 && v.testBit(k), zero.testBit(j));
+				assertEquals(v.testBit(Math.floorMod(k, 96)), wrapped.testBit(j));
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package ch.epfl.gameboj.bits;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public final class BlockOperationsTest {
+
+	private static int[] randomBlocks(Random rng, int length) {
+		int[] blocks = new int[length];
+		for (int i = 0; i < length; ++i)
+			blocks[i] = rng.nextInt();
+		return blocks;
+	}
+
+	// Checks that the two implementations give the same results, on copies of
+	// the operands and in place.
+	private static void assertSameResults(BlockOperations expected, BlockOperations actual) {
+		Random rng = newRandom();
+		for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+			int length = 1 + rng.nextInt(12);
+			int[] a = randomBlocks(rng, length), b = randomBlocks(rng, length), mask = randomBlocks(rng, length);
+			int[] e = new int[length], r = new int[length];
+
+			expected.not(a, e);
+			actual.not(a, r);
+			assertArrayEquals(e, r);
+			expected.and(a, b, e);
+			actual.and(a, b, r);
+			assertArrayEquals(e, r);
+			expected.or(a, b, e);
+			actual.or(a, b, r);
+			assertArrayEquals(e, r);
+			expected.andNot(a, b, e);
+			actual.andNot(a, b, r);
+			assertArrayEquals(e, r);
+			expected.blend(a, b, mask, e);
+			actual.blend(a, b, mask, r);
+			assertArrayEquals(e, r);
+
+			int[] inPlace = a.clone();
+			actual.blend(inPlace, b, mask, inPlace);
+			assertArrayEquals(e, inPlace);
+		}
+	}
+
+	@Test
+	void scalarOperationsAreCorrect() {
+		BlockOperations scalar = BlockOperations.scalar();
+		int[] result = new int[2];
+		scalar.not(new int[] { 0, -1 }, result);
+		assertArrayEquals(new int[] { -1, 0 }, result);
+		scalar.and(new int[] { 0b1100, 0b1010 }, new int[] { 0b1010, 0b0110 }, result);
+		assertArrayEquals(new int[] { 0b1000, 0b0010 }, result);
+		scalar.or(new int[] { 0b1100, 0b1010 }, new int[] { 0b1010, 0b0110 }, result);
+		assertArrayEquals(new int[] { 0b1110, 0b1110 }, result);
+		scalar.andNot(new int[] { 0b1100, 0b1010 }, new int[] { 0b1010, 0b0110 }, result);
+		assertArrayEquals(new int[] { 0b0100, 0b1000 }, result);
+		scalar.blend(new int[] { 0b1100, 0b1010 }, new int[] { 0b1010, 0b0110 }, new int[] { 0b0011, -1 }, result);
+		assertArrayEquals(new int[] { 0b1110, 0b0110 }, result);
+	}
+
+	@Test
+	void fastestOperationsMatchScalarOnes() {
+		assertSameResults(BlockOperations.scalar(), BlockOperations.fastest());
+	}
+
+	@Test
+	void vectorOperationsMatchScalarOnes() {
+		Optional<BlockOperations> vector = BlockOperations.vector();
+		assumeTrue(vector.isPresent(), "Vector API backend not available");
+		assertEquals("VectorBlockOperations", vector.get().getClass().getSimpleName());
+		assertSameResults(BlockOperations.scalar(), vector.get());
+	}
+}
@@ -145,6 +145,48 @@ public final class TimerTest implements ComponentTest {
         assertEquals(1, t.read(0xFF05));
     }
     
+    @Test
+    void skippedCyclesAreCaughtUp() {
+        Random rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            Cpu cpu1 = new Cpu(), cpu2 = new Cpu();
+            Timer t1 = new Timer(cpu1), t2 = new Timer(cpu2);
+            int tac = 0b100 | rng.nextInt(4), tma = rng.nextInt(0x100);
+            for (Timer t: new Timer[] { t1, t2 }) {
+                t.write(0xFF07, tac);
+                t.write(0xFF06, tma);
+            }
+            int c = 0;
+            while (c < 0x4000) {
+                int next = c + rng.nextInt(0x400);
+                for (; c <= next; ++c)
+                    t1.cycle(c);
+                t2.cycle(next);
+                for (int a = 0xFF04; a <= 0xFF07; ++a)
+                    assertEquals(t1.read(a), t2.read(a));
+                assertEquals(cpu1.read(0xFF0F), cpu2.read(0xFF0F));
+            }
+        }
+    }
+
+    @Test
+    void nextNonIdleCycleIsCycleOfOverflow() {
+        for (int tac = 0b100; tac <= 0b111; ++tac) {
+            Cpu cpu = new Cpu();
+            Timer t = new Timer(cpu);
+            t.write(0xFF07, tac);
+            t.write(0xFF05, 0xF0);
+            long overflow = t.nextNonIdleCycle(0);
+            for (long c = 0; c < overflow; ++c)
+                t.cycle(c);
+            assertEquals(0, cpu.read(0xFF0F));
+            t.cycle(overflow);
+            assertEquals(1 << Cpu.Interrupt.TIMER.index(), cpu.read(0xFF0F));
+        }
+        Timer t = newComponent();
+        assertEquals(Long.MAX_VALUE, t.nextNonIdleCycle(0));
+    }
+
     @Test
     void secondaryCounterGetsResetToTMAOnOverflow() {
         Random rng = newRandom();
@@ -2,6 +2,7 @@
 
 package ch.epfl.gameboj.component.cartridge;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.File;
@@ -9,10 +10,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.ComponentTest;
 
@@ -50,4 +54,19 @@ public final class CartridgeTest implements ComponentTest {
             cartridgeWithData(romData);
         });
     }
+
+    @Test
+    void busReadsCartridgeOfDirectBuffer() {
+        byte[] romData = new byte[0x8000];
+        new Random(2018).nextBytes(romData);
+        romData[0x147] = 0;
+        ByteBuffer direct = ByteBuffer.allocateDirect(romData.length).put(romData).flip();
+        Bus bus = new Bus();
+        Cartridge c = Cartridge.ofBuffer(direct);
+        bus.attach(c, 0, 0x8000);
+        for (int a = 0; a < romData.length; ++a) {
+            assertEquals(Byte.toUnsignedInt(romData[a]), bus.read(a));
+            assertEquals(Byte.toUnsignedInt(romData[a]), c.read(a));
+        }
+    }
 }
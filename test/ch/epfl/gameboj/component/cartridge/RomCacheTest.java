@@ -0,0 +1,106 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+
+public final class RomCacheTest {
+    private static File romFile(int seed) throws IOException {
+        byte[] data = new byte[0x8000];
+        for (int i = 0; i < data.length; ++i)
+            data[i] = (byte) (i * seed);
+        data[0x147] = 0;
+        File file = Files.createTempFile("TestROM_", ".gb").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), data);
+        return file;
+    }
+
+    @Test
+    void constructorFailsForNegativeBudget() {
+        assertThrows(IllegalArgumentException.class, () -> new RomCache(-1));
+    }
+
+    @Test
+    void sameFileIsLoadedOnce() throws IOException {
+        RomCache cache = new RomCache(1 << 20);
+        File file = romFile(3);
+        ByteBuffer first = cache.load(file);
+        assertSame(first, cache.load(file));
+        assertEquals(1, cache.size());
+        assertEquals(0x8000, cache.bytes());
+    }
+
+    @Test
+    void identicalFilesShareTheirContents() throws IOException {
+        RomCache cache = new RomCache(1 << 20);
+        assertSame(cache.load(romFile(5)), cache.load(romFile(5)));
+        assertNotSame(cache.load(romFile(5)), cache.load(romFile(7)));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void modifiedFileIsLoadedAgain() throws IOException {
+        RomCache cache = new RomCache(1 << 20);
+        File file = romFile(3);
+        ByteBuffer first = cache.load(file);
+        Files.write(file.toPath(), Files.readAllBytes(romFile(9).toPath()));
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(file.lastModified() + 10_000));
+        ByteBuffer second = cache.load(file);
+        assertNotSame(first, second);
+        assertEquals((byte) 9, second.get(1));
+    }
+
+    @Test
+    void cachedContentsAreNotChangedByRewritingTheFile() throws IOException {
+        RomCache cache = new RomCache(1 << 20);
+        File file = romFile(3), copy = romFile(3);
+        ByteBuffer first = cache.load(file);
+        Cartridge cartridge = cache.cartridge(file);
+        Files.write(file.toPath(), Files.readAllBytes(romFile(9).toPath()));
+        assertEquals((byte) 3, first.get(1));
+        assertEquals(3, cartridge.read(1));
+        assertSame(first, cache.load(copy));
+        assertEquals((byte) 3, cache.load(copy).get(1));
+
+        Files.write(file.toPath(), new byte[0]);
+        assertEquals(3, cartridge.read(1));
+    }
+
+    @Test
+    void leastRecentlyUsedContentsAreEvicted() throws IOException {
+        RomCache cache = new RomCache(2 * 0x8000);
+        File a = romFile(1), b = romFile(2), c = romFile(3);
+        ByteBuffer dataA = cache.load(a);
+        ByteBuffer dataB = cache.load(b);
+        assertSame(dataA, cache.load(a));
+        cache.load(c);
+        assertEquals(2, cache.size());
+        assertEquals(2 * 0x8000, cache.bytes());
+        assertSame(dataA, cache.load(a));
+        assertNotSame(dataB, cache.load(b));
+
+        cache.setByteBudget(0);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    void cartridgesOfSameFileKeepTheirOwnState() throws IOException {
+        RomCache cache = new RomCache(1 << 20);
+        File file = romFile(3);
+        Cartridge c1 = cache.cartridge(file);
+        Cartridge c2 = cache.cartridge(file);
+        assertNotSame(c1, c2);
+        assertEquals(c1.read(0x1234), c2.read(0x1234));
+    }
+}
@@ -90,6 +90,32 @@ class CpuTest_perso2 {
                 c._testGetPcSpAFBCDEHL());
     }
 
+    @Test
+    void flagsOfSuccessiveArithmeticOperationsAreCorrect() {
+        Cpu c = new Cpu();
+        Ram r = new Ram(10);
+        Bus b = connect(c, r);
+
+        b.write(0, Opcode.ADD_A_N8.encoding);
+        b.write(1, 0xFF);
+        b.write(2, Opcode.ADD_A_N8.encoding);
+        b.write(3, 1);
+        b.write(4, Opcode.INC_B.encoding);
+        b.write(5, Opcode.DEC_C.encoding);
+        b.write(6, Opcode.ADC_A_N8.encoding);
+        b.write(7, 0);
+
+        cycleCpu(c, 6);
+        assertArrayEquals(new int[] { 6, 0, 0, 0b0111_0000, 1, 0xFF, 0, 0, 0, 0 },
+                c._testGetPcSpAFBCDEHL());
+
+        Cpu c2 = new Cpu();
+        connect(c2, r);
+        cycleCpu(c2, 7);
+        assertArrayEquals(new int[] { 8, 0, 1, 0b0000_0000, 1, 0xFF, 0, 0, 0, 0 },
+                c2._testGetPcSpAFBCDEHL());
+    }
+
     @Test
     void INC_HLR_Works() {
         Cpu c = new Cpu();
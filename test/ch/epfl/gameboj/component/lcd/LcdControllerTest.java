@@ -0,0 +1,168 @@
+package ch.epfl.gameboj.component.lcd;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.component.cpu.Cpu;
+
+public final class LcdControllerTest {
+
+	private static final int REG_LCDC = AddressMap.REGS_LCDC_START;
+	private static final int REG_SCY = REG_LCDC + 2;
+	private static final int REG_SCX = REG_LCDC + 3;
+	private static final int REG_BGP = REG_LCDC + 7;
+
+	private long cycle;
+
+	private LcdController enabledController() {
+		return enabledController(new Cpu());
+	}
+
+	private LcdController enabledController(Cpu cpu) {
+		LcdController lcd = new LcdController(cpu);
+		lcd.attachTo(new Bus());
+		lcd.write(REG_BGP, 0b1110_0100);
+		lcd.write(REG_LCDC, 0b1001_0001);
+		return lcd;
+	}
+
+	private void runFrame(LcdController lcd) {
+		for (long end = cycle + GameBoy.CYCLES_PER_FRAME; cycle < end; ++cycle)
+			lcd.cycle(cycle);
+	}
+
+	@Test
+	void unchangedFramesHaveNoChangedLines() {
+		LcdController lcd = enabledController();
+		for (int i = 0; i < 3; ++i)
+			runFrame(lcd);
+		assertTrue(lcd.currentImage().changedLines().isEmpty());
+
+		lcd.write(REG_SCX, 0);
+		runFrame(lcd);
+		assertTrue(lcd.currentImage().changedLines().isEmpty());
+	}
+
+	@Test
+	void onlyLinesUsingAModifiedTileChange() {
+		LcdController lcd = enabledController();
+		for (int i = 0; i < 3; ++i)
+			runFrame(lcd);
+		lcd.write(AddressMap.VIDEO_RAM_START + 2, 0xFF);
+		runFrame(lcd);
+		runFrame(lcd);
+
+		LcdImage image = lcd.currentImage();
+		BitSet expected = new BitSet();
+		for (int y = 1; y < LcdController.LCD_HEIGHT; y += 8)
+			expected.set(y);
+		assertEquals(expected, image.changedLines());
+		for (int y = 0; y < LcdController.LCD_HEIGHT; ++y)
+			assertEquals(y % 8 == 1 ? 1 : 0, image.get(5, y));
+
+		runFrame(lcd);
+		assertTrue(lcd.currentImage().changedLines().isEmpty());
+		assertEquals(image, lcd.currentImage());
+	}
+
+	@Test
+	void scrollingChangesTheLines() {
+		LcdController lcd = enabledController();
+		lcd.write(AddressMap.VIDEO_RAM_START + 2, 0xFF);
+		for (int i = 0; i < 3; ++i)
+			runFrame(lcd);
+		lcd.write(REG_SCY, 1);
+		runFrame(lcd);
+		runFrame(lcd);
+
+		LcdImage image = lcd.currentImage();
+		for (int y = 0; y < LcdController.LCD_HEIGHT; ++y) {
+			assertEquals(y % 8 == 0 || y % 8 == 1, image.isLineChanged(y));
+			assertEquals(y % 8 == 0 ? 1 : 0, image.get(5, y));
+		}
+	}
+
+	@Test
+	void setFrameIntervalFailsForNegativeInterval() {
+		LcdController lcd = new LcdController(new Cpu());
+		assertThrows(IllegalArgumentException.class, () -> lcd.setFrameInterval(-1));
+	}
+
+	@Test
+	void skippingFramesDoesNotChangeTiming() {
+		Cpu drawnCpu = new Cpu(), skippedCpu = new Cpu();
+		LcdController drawn = enabledController(drawnCpu);
+		LcdController skipped = enabledController(skippedCpu);
+		skipped.setFrameInterval(0);
+		for (long c = 0; c < 3 * GameBoy.CYCLES_PER_FRAME; ++c) {
+			drawn.cycle(c);
+			skipped.cycle(c);
+			for (int address = REG_LCDC; address < AddressMap.REGS_LCDC_END; ++address)
+				assertEquals(drawn.read(address), skipped.read(address));
+			assertEquals(drawnCpu.read(AddressMap.REG_IF), skippedCpu.read(AddressMap.REG_IF));
+		}
+	}
+
+	@Test
+	void onlyOneFrameOutOfTheIntervalIsPublished() {
+		LcdController lcd = enabledController();
+		lcd.write(AddressMap.VIDEO_RAM_START + 2, 0xFF);
+		lcd.setFrameInterval(3);
+		for (int i = 0; i < 8; ++i) {
+			lcd.write(REG_SCY, i);
+			runFrame(lcd);
+			if (i > 0) {
+				int drawnScroll = (i - 1) / 3 * 3;
+				for (int y = 0; y < LcdController.LCD_HEIGHT; ++y)
+					assertEquals((y + drawnScroll) % 8 == 1 ? 1 : 0, lcd.currentImage().get(5, y));
+			}
+		}
+
+		lcd.setFrameInterval(0);
+		runFrame(lcd);
+		LcdImage last = lcd.currentImage();
+		for (int i = 0; i < 3; ++i) {
+			lcd.write(REG_SCY, 20 + i);
+			runFrame(lcd);
+			assertSame(last, lcd.currentImage());
+		}
+	}
+
+	@Test
+	void forkedControllersDoNotDrawIntoTheirSharedImages() {
+		LcdController lcd = enabledController();
+		for (int i = 0; i < 3; ++i)
+			runFrame(lcd);
+		lcd.write(AddressMap.VIDEO_RAM_START + 2, 0xFF);
+		for (long end = cycle + GameBoy.CYCLES_PER_FRAME / 2; cycle < end; ++cycle)
+			lcd.cycle(cycle);
+
+		long forkCycle = cycle;
+		LcdController fork = lcd.fork(new Cpu());
+		LcdImage shared = lcd.currentImage();
+		LcdImage contents = new LcdImage(shared);
+		assertSame(shared, fork.currentImage());
+
+		fork.write(AddressMap.VIDEO_RAM_START + 3, 0xFF);
+		for (int i = 0; i < 3; ++i)
+			runFrame(fork);
+		assertEquals(contents, shared);
+		LcdImage forkImage = fork.currentImage();
+		LcdImage forkContents = new LcdImage(forkImage);
+
+		cycle = forkCycle;
+		for (int i = 0; i < 3; ++i)
+			runFrame(lcd);
+		assertEquals(forkContents, forkImage);
+		assertTrue(!lcd.currentImage().equals(fork.currentImage()));
+	}
+}
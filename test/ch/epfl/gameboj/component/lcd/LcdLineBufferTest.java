@@ -0,0 +1,129 @@
+package ch.epfl.gameboj.component.lcd;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public final class LcdLineBufferTest {
+
+	private static final int SIZE = 64;
+
+	// Fills the buffer and a builder with the same random bytes.
+	private static LcdImageLine fill(Random rng, LcdLineBuffer buffer) {
+		LcdImageLine.Builder builder = new LcdImageLine.Builder(buffer.size());
+		buffer.clear();
+		for (int i = 0; i < buffer.size() / Byte.SIZE; ++i) {
+			int msb = rng.nextInt(0x100), lsb = rng.nextInt(0x100);
+			builder.setBytes(i, msb, lsb);
+			buffer.setBytes(i, msb, lsb);
+		}
+		return builder.build();
+	}
+
+	@Test
+	void constructorFailsForInvalidSize() {
+		assertThrows(IllegalArgumentException.class, () -> new LcdLineBuffer(0));
+		assertThrows(IllegalArgumentException.class, () -> new LcdLineBuffer(33));
+	}
+
+	@Test
+	void setBytesFailsForInvalidIndex() {
+		LcdLineBuffer buffer = new LcdLineBuffer(SIZE);
+		assertThrows(IndexOutOfBoundsException.class, () -> buffer.setBytes(SIZE / Byte.SIZE, 0, 0));
+	}
+
+	@Test
+	void shiftAndMapColorsWorkLikeLcdImageLine() {
+		Random rng = newRandom();
+		LcdLineBuffer buffer = new LcdLineBuffer(SIZE);
+		for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+			LcdImageLine expected = fill(rng, buffer);
+			int distance = rng.nextInt(2 * SIZE + 1) - SIZE;
+			int palette = rng.nextInt(0x100);
+			buffer.shift(distance);
+			buffer.mapColors(palette);
+			assertEquals(expected.shift(distance).mapColors(palette), buffer.toLine());
+		}
+	}
+
+	@Test
+	void extractWrappedWorksLikeLcdImageLine() {
+		Random rng = newRandom();
+		LcdLineBuffer source = new LcdLineBuffer(4 * SIZE);
+		LcdLineBuffer buffer = new LcdLineBuffer(SIZE);
+		for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+			LcdImageLine expected = fill(rng, source);
+			int index = rng.nextInt(8 * SIZE) - 4 * SIZE;
+			buffer.extractWrapped(source, index);
+			assertEquals(expected.extractWrapped(index, SIZE), buffer.toLine());
+		}
+	}
+
+	@Test
+	void compositionsWorkLikeLcdImageLine() {
+		Random rng = newRandom();
+		LcdLineBuffer first = new LcdLineBuffer(SIZE);
+		LcdLineBuffer second = new LcdLineBuffer(SIZE);
+		for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+			LcdImageLine l1 = fill(rng, first);
+			LcdImageLine l2 = fill(rng, second);
+			first.below(second);
+			assertEquals(l1.below(l2), first.toLine());
+
+			l1 = fill(rng, first);
+			first.above(second);
+			assertEquals(l2.below(l1), first.toLine());
+
+			l1 = fill(rng, first);
+			first.aboveOpaque(second);
+			assertEquals(l2.below(l1, l2.getOpacity().not().or(l1.getOpacity())), first.toLine());
+
+			l1 = fill(rng, first);
+			int index = rng.nextInt(SIZE);
+			first.join(index, second);
+			assertEquals(l1.join(index, l2), first.toLine());
+		}
+	}
+
+	@Test
+	void composeWorksLikeTheSuccessiveOperations() {
+		Random rng = newRandom();
+		LcdLineBuffer background = new LcdLineBuffer(4 * SIZE);
+		LcdLineBuffer window = new LcdLineBuffer(SIZE);
+		LcdLineBuffer behind = new LcdLineBuffer(SIZE);
+		LcdLineBuffer front = new LcdLineBuffer(SIZE);
+		LcdLineBuffer expected = new LcdLineBuffer(SIZE);
+		LcdLineBuffer shifted = new LcdLineBuffer(SIZE);
+		LcdLineBuffer actual = new LcdLineBuffer(SIZE);
+		for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+			fill(rng, background);
+			fill(rng, window);
+			fill(rng, behind);
+			fill(rng, front);
+			int index = rng.nextInt(4 * SIZE), windowIndex = rng.nextInt(SIZE), palette = rng.nextInt(0x100);
+			boolean sprites = rng.nextBoolean(), drawWindow = rng.nextBoolean();
+
+			expected.extractWrapped(background, index);
+			expected.mapColors(palette);
+			if (sprites)
+				expected.aboveOpaque(behind);
+			if (drawWindow) {
+				shifted.join(0, window);
+				shifted.shift(windowIndex);
+				expected.join(windowIndex, shifted);
+				expected.mapColors(palette);
+			}
+			if (sprites)
+				expected.below(front);
+
+			actual.compose(background, index, palette, sprites ? behind : null, drawWindow ? window : null,
+					windowIndex, sprites ? front : null);
+			assertEquals(expected.toLine(), actual.toLine());
+		}
+	}
+}
@@ -2,6 +2,8 @@ package ch.epfl.gameboj.component.lcd;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.BufferOverflowException;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -787,4 +789,41 @@ public class LcdTest {
 	}
 	
     
+	@Test
+	void imagesBuiltAreIndependentOfTheBuilder() {
+		LcdImageLine line = new LcdImageLine(v1, v3, v1);
+		LcdImage.Builder builder = new LcdImage.Builder(2, 32);
+		LcdImage blank = builder.build();
+		LcdImage image = builder.setLine(1, line).build();
+		builder.setLine(0, line);
+
+		assertEquals(new LcdImage(2, 32, List.of(new LcdImageLine(v0, v0, v0), new LcdImageLine(v0, v0, v0))), blank);
+		assertEquals(new LcdImage(2, 32, List.of(new LcdImageLine(v0, v0, v0), line)), image);
+		for (int x = 0; x < 32; ++x) {
+			assertEquals(0, image.get(x, 0));
+			assertEquals(v3.testBit(x) ? 3 : 2, image.get(x, 1));
+		}
+	}
+
+	@Test
+	void toArgbWritesPixelsWithPalette() {
+		int[] palette = { 10, 11, 12, 13 };
+		LcdImage image = new LcdImage(2, 64, List.of(new LcdImageLine(v5.not(), v5, v5),
+				new LcdImageLine(new BitVector.Builder(64).setByte(7, 0xA5).build(), v5.not(), v5)));
+		int[] pixels = new int[3 + 128];
+		IntBuffer buffer = IntBuffer.allocate(128);
+		image.toArgb(palette, pixels, 3);
+		image.toArgb(palette, buffer);
+		assertEquals(0, buffer.remaining());
+		for (int y = 0; y < 2; ++y) {
+			for (int x = 0; x < 64; ++x) {
+				assertEquals(palette[image.get(x, y)], pixels[3 + y * 64 + x]);
+				assertEquals(palette[image.get(x, y)], buffer.get(y * 64 + x));
+			}
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> image.toArgb(palette, pixels, 4));
+		assertThrows(IllegalArgumentException.class, () -> image.toArgb(new int[3], pixels, 0));
+		assertThrows(BufferOverflowException.class, () -> image.toArgb(palette, IntBuffer.allocate(127)));
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package ch.epfl.gameboj.component.lcd;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public final class PaletteMapperTest {
+
+	@Test
+	void mapFailsForInvalidPalette() {
+		assertThrows(IllegalArgumentException.class, () -> PaletteMapper.map(-1, new int[1], new int[1]));
+		assertThrows(IllegalArgumentException.class, () -> PaletteMapper.map(0x100, new int[1], new int[1]));
+	}
+
+	@Test
+	void mapGivesTheColorOfThePaletteForEveryPixel() {
+		// The 16 pixels of each half of the block have the colors 0 to 3 in all
+		// orders.
+		int msb = 0b1100_1100_1010_1010_1100_1100_1010_1010;
+		int lsb = 0b1010_1010_1100_1100_0101_0101_0011_0011;
+		for (int palette = 0; palette < 0x100; ++palette) {
+			int[] mappedMsb = { msb }, mappedLsb = { lsb };
+			PaletteMapper.map(palette, mappedMsb, mappedLsb);
+			for (int i = 0; i < Integer.SIZE; ++i) {
+				int color = ((msb >>> i) & 1) << 1 | ((lsb >>> i) & 1);
+				int expected = (palette >>> (2 * color)) & 0b11;
+				int actual = ((mappedMsb[0] >>> i) & 1) << 1 | ((mappedLsb[0] >>> i) & 1);
+				assertEquals(expected, actual);
+			}
+		}
+	}
+
+	@Test
+	void identityPaletteChangesNothing() {
+		int[] msb = { 0x1234_5678, 0x9ABC_DEF0 }, lsb = { 0x0F0F_0F0F, 0xF0F0_F0F0 };
+		PaletteMapper.map(PaletteMapper.IDENTITY, msb, lsb);
+		assertArrayEquals(new int[] { 0x1234_5678, 0x9ABC_DEF0 }, msb);
+		assertArrayEquals(new int[] { 0x0F0F_0F0F, 0xF0F0_F0F0 }, lsb);
+	}
+}
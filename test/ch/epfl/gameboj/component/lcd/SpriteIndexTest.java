@@ -0,0 +1,84 @@
+package ch.epfl.gameboj.component.lcd;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.AddressMap;
+
+public final class SpriteIndexTest {
+
+	// The sprites drawn on the line, found by scanning the whole OAM.
+	private static int[] spritesOnLine(int[] oam, int lineIndex, boolean tall) {
+		int[] sprites = new int[SpriteIndex.MAX_SPRITES_LINE];
+		int count = 0;
+		for (int i = 0; i < oam.length / 4 && count < sprites.length; ++i) {
+			int y = oam[4 * i] - 16;
+			if (lineIndex >= y && lineIndex < y + (tall ? 16 : 8))
+				sprites[count++] = oam[4 * i + 1] << 8 | i;
+		}
+		Arrays.sort(sprites, 0, count);
+		return Arrays.copyOf(sprites, count);
+	}
+
+	@Test
+	void updateFailsForInvalidArguments() {
+		SpriteIndex index = new SpriteIndex();
+		assertThrows(IndexOutOfBoundsException.class, () -> index.update(AddressMap.OAM_RAM_SIZE, 0));
+		assertThrows(IllegalArgumentException.class, () -> index.update(0, 0x100));
+	}
+
+	@Test
+	void spritesOnLineFailsForInvalidLine() {
+		SpriteIndex index = new SpriteIndex();
+		int[] sprites = new int[SpriteIndex.MAX_SPRITES_LINE];
+		assertThrows(IndexOutOfBoundsException.class,
+				() -> index.spritesOnLine(LcdController.LCD_HEIGHT, false, sprites));
+	}
+
+	@Test
+	void spritesOnLineSortsByCoordinateXThenIndex() {
+		SpriteIndex index = new SpriteIndex();
+		index.update(0, 20);
+		index.update(1, 50);
+		index.update(4, 18);
+		index.update(5, 30);
+		index.update(8, 16);
+		index.update(9, 50);
+		int[] sprites = new int[SpriteIndex.MAX_SPRITES_LINE];
+		assertEquals(3, index.spritesOnLine(4, false, sprites));
+		assertArrayEquals(new int[] { 30 << 8 | 1, 50 << 8, 50 << 8 | 2 }, Arrays.copyOf(sprites, 3));
+		assertEquals(2, index.spritesOnLine(9, false, sprites));
+		assertEquals(3, index.spritesOnLine(9, true, sprites));
+	}
+
+	@Test
+	void spritesOnLineWorksLikeAScanOfTheOam() {
+		Random rng = newRandom();
+		SpriteIndex index = new SpriteIndex();
+		int[] oam = new int[AddressMap.OAM_RAM_SIZE];
+		int[] sprites = new int[SpriteIndex.MAX_SPRITES_LINE];
+		for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+			for (int j = 0; j < 20; ++j) {
+				int address = rng.nextInt(oam.length);
+				// Coordinates mostly on the screen, so that lines have many sprites.
+				oam[address] = rng.nextInt(address % 4 == 0 ? 80 : 0x100);
+				index.update(address, oam[address]);
+			}
+			for (int line = 0; line < LcdController.LCD_HEIGHT; ++line) {
+				for (boolean tall : new boolean[] { false, true }) {
+					int[] expected = spritesOnLine(oam, line, tall);
+					int count = index.spritesOnLine(line, tall, sprites);
+					assertArrayEquals(expected, Arrays.copyOf(sprites, count));
+				}
+			}
+		}
+	}
+}
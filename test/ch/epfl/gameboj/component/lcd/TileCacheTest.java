@@ -0,0 +1,62 @@
+package ch.epfl.gameboj.component.lcd;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.bits.Bits;
+import ch.epfl.gameboj.component.memory.Ram;
+
+public final class TileCacheTest {
+
+	private static final int TILES_SIZE = 0x1800;
+
+	private static int expectedLine(Ram videoRam, int index, boolean flipped) {
+		int lsb = videoRam.read(index), msb = videoRam.read(index + 1);
+		return flipped ? Bits.make16(msb, lsb) : Bits.make16(Bits.reverse8(msb), Bits.reverse8(lsb));
+	}
+
+	@Test
+	void lineFailsForIndexOutsideTiles() {
+		TileCache tiles = new TileCache(new Ram(AddressMap.VIDEO_RAM_SIZE));
+		assertThrows(IndexOutOfBoundsException.class, () -> tiles.line(-1, false));
+		assertThrows(IndexOutOfBoundsException.class, () -> tiles.line(TILES_SIZE, false));
+	}
+
+	@Test
+	void linesAreDecodedAndUpdatedWhenInvalidated() {
+		Random rng = newRandom();
+		Ram videoRam = new Ram(AddressMap.VIDEO_RAM_SIZE);
+		TileCache tiles = new TileCache(videoRam);
+		for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+			int written = rng.nextInt(AddressMap.VIDEO_RAM_SIZE);
+			videoRam.write(written, rng.nextInt(0x100));
+			tiles.invalidate(written);
+			int index = 2 * rng.nextInt(TILES_SIZE / 2);
+			boolean flipped = rng.nextBoolean();
+			assertEquals(expectedLine(videoRam, index, flipped), tiles.line(index, flipped));
+			if (written < TILES_SIZE)
+				assertEquals(expectedLine(videoRam, written & ~1, flipped), tiles.line(written & ~1, flipped));
+		}
+	}
+
+	@Test
+	void linesAreKeptUntilInvalidated() {
+		Ram videoRam = new Ram(AddressMap.VIDEO_RAM_SIZE);
+		TileCache tiles = new TileCache(videoRam);
+		assertEquals(0, tiles.line(0x20, false));
+		videoRam.write(0x20, 0b1000_0001);
+		videoRam.write(0x21, 0b0000_0011);
+		assertEquals(0, tiles.line(0x20, false));
+
+		tiles.invalidateAll();
+		assertEquals(0b1100_0000_1000_0001, tiles.line(0x20, false));
+		assertEquals(0b0000_0011_1000_0001, tiles.line(0x20, true));
+	}
+}
@@ -87,4 +87,47 @@ class RamTest {
                     () -> ram.write(0, k));
         }
     }
+
+    @Test
+    void forkedRamHasSameContents() {
+        Random rng = newRandom();
+        int size = 1_000;
+        Ram ram = new Ram(size);
+        for (int i = 0; i < size; ++i)
+            ram.write(i, rng.nextInt(0x100));
+        Ram fork = ram.fork();
+        assertEquals(size, fork.size());
+        for (int i = 0; i < size; ++i)
+            assertEquals(ram.read(i), fork.read(i));
+    }
+
+    @Test
+    void writesAfterForkAreNotShared() {
+        Ram ram = new Ram(1_000);
+        ram.write(10, 1);
+        ram.write(600, 2);
+        Ram fork = ram.fork();
+        fork.write(10, 3);
+        ram.write(600, 4);
+        assertEquals(1, ram.read(10));
+        assertEquals(3, fork.read(10));
+        assertEquals(4, ram.read(600));
+        assertEquals(2, fork.read(600));
+
+        Ram forkOfFork = fork.fork();
+        forkOfFork.write(999, 5);
+        ram.write(11, 6);
+        assertEquals(0, fork.read(999));
+        assertEquals(5, forkOfFork.read(999));
+        assertEquals(0, forkOfFork.read(11));
+        assertEquals(3, forkOfFork.read(10));
+    }
+
+    @Test
+    void forkedRamFailsForInvalidIndex() {
+        Ram fork = new Ram(300).fork();
+        assertThrows(IndexOutOfBoundsException.class, () -> fork.read(300));
+        assertThrows(IndexOutOfBoundsException.class, () -> fork.write(511, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> fork.read(-1));
+    }
 }
@@ -7,6 +7,7 @@ import static ch.epfl.test.TestRandomizer.newRandom;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Random;
 
@@ -57,4 +58,18 @@ class RomTest {
                     () -> rom.read(k));
         }
     }
+
+    @Test
+    void ofBufferReadsBytesBetweenPositionAndLimit() {
+        Random rng = newRandom();
+        byte[] a = new byte[300];
+        rng.nextBytes(a);
+        ByteBuffer buffer = ByteBuffer.wrap(a).position(10).limit(290);
+        Rom r = Rom.ofBuffer(buffer.asReadOnlyBuffer());
+        assertEquals(280, r.size());
+        for (int j = 0; j < r.size(); ++j)
+            assertEquals(Byte.toUnsignedInt(a[10 + j]), r.read(j));
+        assertThrows(IndexOutOfBoundsException.class, () -> r.read(280));
+        assertThrows(NullPointerException.class, () -> Rom.ofBuffer(null));
+    }
 }
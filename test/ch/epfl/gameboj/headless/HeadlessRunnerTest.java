@@ -0,0 +1,74 @@
+package ch.epfl.gameboj.headless;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.component.cartridge.CartridgeTest;
+import ch.epfl.gameboj.component.lcd.LcdController;
+
+public final class HeadlessRunnerTest {
+
+	private static GameBoy newGameBoy() {
+		return new GameBoy(CartridgeTest.cartridgeWithData(new byte[0x8000]));
+	}
+
+	@Test
+	void invalidLinesAreRejected() {
+		HeadlessRunner runner = new HeadlessRunner(newGameBoy());
+		assertThrows(IllegalArgumentException.class, () -> runner.schedule("10"));
+		assertThrows(IllegalArgumentException.class, () -> runner.schedule("10 jump"));
+		assertThrows(IllegalArgumentException.class, () -> runner.schedule("-1 stop"));
+		assertThrows(IllegalArgumentException.class, () -> runner.schedule("x stop"));
+		assertThrows(IllegalArgumentException.class, () -> runner.schedule("10 press Z"));
+		assertThrows(IllegalArgumentException.class, () -> runner.schedule("10 memory f C000"));
+		assertThrows(IllegalArgumentException.class, () -> runner.schedule("10 memory f C000 10001"));
+	}
+
+	@Test
+	void actionsAreExecutedInOrderAtTheirCycle() throws IOException {
+		GameBoy gameBoy = newGameBoy();
+		List<Long> cycles = new ArrayList<>();
+		new HeadlessRunner(gameBoy)
+				.schedule(30, g -> cycles.add(g.cycles()))
+				.schedule(10, g -> cycles.add(g.cycles()))
+				.schedule(30, g -> cycles.add(-g.cycles()))
+				.schedule("# comment")
+				.schedule("")
+				.schedule("2f stop")
+				.run();
+		assertEquals(List.of(10L, 30L, -30L), cycles);
+		assertEquals(2 * GameBoy.CYCLES_PER_FRAME, gameBoy.cycles());
+	}
+
+	@Test
+	void memoryAndFramesAreDumped(@TempDir Path directory) throws IOException {
+		Path memory = directory.resolve("dumps/memory.bin");
+		Path frame = directory.resolve("dumps/frame.png");
+		GameBoy gameBoy = newGameBoy();
+		new HeadlessRunner(gameBoy)
+				.schedule(100, g -> g.bus().write(0xC001, 0x42))
+				.schedule("100 memory " + memory + " C000 C004")
+				.schedule("1f frame " + frame)
+				.run();
+
+		assertArrayEquals(new byte[] { 0, 0x42, 0, 0 }, Files.readAllBytes(memory));
+		BufferedImage image = ImageIO.read(frame.toFile());
+		assertEquals(LcdController.LCD_WIDTH, image.getWidth());
+		assertEquals(LcdController.LCD_HEIGHT, image.getHeight());
+		assertEquals(GameBoy.CYCLES_PER_FRAME, gameBoy.cycles());
+	}
+}
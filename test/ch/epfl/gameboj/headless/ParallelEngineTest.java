@@ -0,0 +1,91 @@
+package ch.epfl.gameboj.headless;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.component.cartridge.CartridgeTest;
+import ch.epfl.gameboj.headless.ParallelEngine.Report;
+import ch.epfl.gameboj.headless.ParallelEngine.Session;
+
+public final class ParallelEngineTest {
+
+	private static GameBoy newGameBoy() {
+		return new GameBoy(CartridgeTest.cartridgeWithData(new byte[0x8000]));
+	}
+
+	@Test
+	void constructorFailsForInvalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> new ParallelEngine(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new ParallelEngine(1, 0));
+	}
+
+	@Test
+	void sessionsRunTheirBudgetAndMatchASequentialRun() throws InterruptedException {
+		long[] budgets = { 0, 100, GameBoy.CYCLES_PER_FRAME, 5 * GameBoy.CYCLES_PER_FRAME + 17 };
+		List<Session> sessions = new ArrayList<>();
+		Report report;
+		try (ParallelEngine engine = new ParallelEngine(3, 2)) {
+			for (long budget : budgets)
+				sessions.add(engine.add(newGameBoy(), budget));
+			report = engine.run();
+		}
+
+		long total = 0;
+		for (int i = 0; i < budgets.length; ++i) {
+			Session session = sessions.get(i);
+			assertTrue(session.isFinished());
+			assertFalse(session.failure().isPresent());
+			assertEquals(budgets[i], session.gameBoy().cycles());
+
+			GameBoy expected = newGameBoy();
+			expected.runUntil(budgets[i]);
+			assertArrayEquals(expected.cpu()._testGetPcSpAFBCDEHL(), session.gameBoy().cpu()._testGetPcSpAFBCDEHL());
+			total += budgets[i];
+		}
+		assertEquals(total, report.cycles());
+	}
+
+	@Test
+	void failingSessionsDoNotStopTheOthers() throws InterruptedException {
+		try (ParallelEngine engine = new ParallelEngine(2, 1)) {
+			HeadlessRunner failing = new HeadlessRunner(newGameBoy()).schedule(GameBoy.CYCLES_PER_FRAME, g -> {
+				throw new IOException();
+			});
+			Session failed = engine.add(failing, 10 * GameBoy.CYCLES_PER_FRAME);
+			Session other = engine.add(newGameBoy(), 10 * GameBoy.CYCLES_PER_FRAME);
+			engine.run();
+
+			assertTrue(failed.isFinished());
+			assertTrue(failed.failure().get() instanceof IOException);
+			assertEquals(GameBoy.CYCLES_PER_FRAME, failed.gameBoy().cycles());
+			assertEquals(10 * GameBoy.CYCLES_PER_FRAME, other.gameBoy().cycles());
+		}
+	}
+
+	@Test
+	void sessionsThrowingErrorsDoNotStopTheRun() throws InterruptedException {
+		try (ParallelEngine engine = new ParallelEngine(2, 1)) {
+			HeadlessRunner failing = new HeadlessRunner(newGameBoy()).schedule(GameBoy.CYCLES_PER_FRAME, g -> {
+				throw new Error("STOP is not implemented");
+			});
+			Session failed = engine.add(failing, 10 * GameBoy.CYCLES_PER_FRAME);
+			Session other = engine.add(newGameBoy(), 10 * GameBoy.CYCLES_PER_FRAME);
+			engine.run();
+
+			assertTrue(failed.isFinished());
+			assertEquals(Error.class, failed.failure().get().getClass());
+			assertEquals(GameBoy.CYCLES_PER_FRAME, failed.gameBoy().cycles());
+			assertEquals(10 * GameBoy.CYCLES_PER_FRAME, other.gameBoy().cycles());
+		}
+	}
+}
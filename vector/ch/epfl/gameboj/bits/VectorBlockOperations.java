@@ -0,0 +1,72 @@
+package ch.epfl.gameboj.bits;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Package-private final class implementing the operations on blocks of
+ * BitVector with the Vector API, 4 blocks at a time, the remaining blocks being
+ * computed one at a time. Lanes of 128 bits are available on all the x86-64
+ * and AArch64 processors, and suit the lines of the LcdController: a line of
+ * 256 bits is two vectors, one of 160 bits a vector and a block.
+ *
+ * It is loaded by {@link BlockOperations#vector()} and requires the module
+ * jdk.incubator.vector.
+ *
+ * @author Oscar Pitcho (288225)
+ * @author Nizar Ghandri (283161)
+ */
+final class VectorBlockOperations implements BlockOperations {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_128;
+
+	@Override
+	public void not(int[] a, int[] result) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(result.length); i < bound; i += SPECIES.length())
+			IntVector.fromArray(SPECIES, a, i).not().intoArray(result, i);
+		for (; i < result.length; ++i)
+			result[i] = ~a[i];
+	}
+
+	@Override
+	public void and(int[] a, int[] b, int[] result) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(result.length); i < bound; i += SPECIES.length())
+			IntVector.fromArray(SPECIES, a, i).and(IntVector.fromArray(SPECIES, b, i)).intoArray(result, i);
+		for (; i < result.length; ++i)
+			result[i] = a[i] & b[i];
+	}
+
+	@Override
+	public void or(int[] a, int[] b, int[] result) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(result.length); i < bound; i += SPECIES.length())
+			IntVector.fromArray(SPECIES, a, i).or(IntVector.fromArray(SPECIES, b, i)).intoArray(result, i);
+		for (; i < result.length; ++i)
+			result[i] = a[i] | b[i];
+	}
+
+	@Override
+	public void andNot(int[] a, int[] b, int[] result) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(result.length); i < bound; i += SPECIES.length())
+			IntVector.fromArray(SPECIES, a, i).lanewise(VectorOperators.AND_NOT, IntVector.fromArray(SPECIES, b, i))
+					.intoArray(result, i);
+		for (; i < result.length; ++i)
+			result[i] = a[i] & ~b[i];
+	}
+
+	@Override
+	public void blend(int[] a, int[] b, int[] mask, int[] result) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(result.length); i < bound; i += SPECIES.length()) {
+			IntVector va = IntVector.fromArray(SPECIES, a, i);
+			IntVector vb = IntVector.fromArray(SPECIES, b, i);
+			va.lanewise(VectorOperators.BITWISE_BLEND, vb, IntVector.fromArray(SPECIES, mask, i)).intoArray(result, i);
+		}
+		for (; i < result.length; ++i)
+			result[i] = a[i] ^ ((a[i] ^ b[i]) & mask[i]);
+	}
+}